@@ -0,0 +1,108 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.stomp.SessionOrderedTaskExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// a batch of messages from many sessions, each handled by a handler that blocks as if waiting on I/O
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlockingHandlerExecutorBenchmark {
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"10"})
+    private long blockingMillis;
+
+    @Param({"100"})
+    private int sessions;
+
+    @Param({"10"})
+    private int messagesPerSession;
+
+    private SessionOrderedTaskExecutor executor;
+
+    private Message<?>[] messages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = new SessionOrderedTaskExecutor(virtualThreads);
+        executor.setThreadNamePrefix("benchmark-");
+        executor.setCorePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        executor.initialize();
+
+        messages = new Message<?>[sessions * messagesPerSession];
+        for (int i = 0; i < messages.length; i++) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+            accessor.setSessionId("session-" + (i % sessions));
+            messages[i] = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Benchmark
+    public void handleBatch() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(messages.length);
+        MessageHandler handler = message -> {
+            try {
+                Thread.sleep(blockingMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            latch.countDown();
+        };
+        for (Message<?> message : messages) {
+            executor.execute(new MessageHandlingTask(message, handler));
+        }
+        latch.await();
+    }
+
+    private static class MessageHandlingTask implements MessageHandlingRunnable {
+
+        private final Message<?> message;
+
+        private final MessageHandler handler;
+
+        MessageHandlingTask(Message<?> message, MessageHandler handler) {
+            this.message = message;
+            this.handler = handler;
+        }
+
+        @Override
+        public Message<?> getMessage() {
+            return message;
+        }
+
+        @Override
+        public MessageHandler getMessageHandler() {
+            return handler;
+        }
+
+        @Override
+        public void run() {
+            handler.handleMessage(message);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.server.example4.websocket.interceptor.LoggingChannelInterceptor;
+import demo.websocket.server.example4.websocket.interceptor.TracingChannelInterceptor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoggingChannelInterceptorBenchmark {
+
+    @Param({"none", "logging", "tracing"})
+    private String interceptor;
+
+    private ExecutorSubscribableChannel channel;
+
+    private Message<byte[]> message;
+
+    @Setup
+    public void setup() {
+        channel = new ExecutorSubscribableChannel();
+        channel.subscribe(message -> {
+        });
+        if (interceptor.equals("logging")) {
+            channel.addInterceptor(new LoggingChannelInterceptor());
+        } else if (interceptor.equals("tracing")) {
+            channel.addInterceptor(new TracingChannelInterceptor("benchmark", 0.01, 1024));
+        }
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setDestination("/topic/performance");
+        accessor.setSessionId("benchmark");
+        accessor.setSubscriptionId("sub-0");
+        accessor.setMessageId("0");
+        String payload = "{\"time\":1600000000000,\"committedVirtualMemorySize\":5678901248,"
+                + "\"totalSwapSpaceSize\":2147479552,\"freeSwapSpaceSize\":2003156992,"
+                + "\"totalPhysicalMemorySize\":16655077376,\"freePhysicalMemorySize\":7293202432,"
+                + "\"systemCpuLoad\":0.1234567890123,\"processCpuLoad\":0.0123456789012}";
+        message = MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    @Benchmark
+    public boolean send() {
+        return channel.send(message);
+    }
+}
@@ -0,0 +1,92 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.server.example3.MessageMappingController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.annotation.support.SimpAnnotationMethodMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MessageMappingControllerBenchmark {
+
+    private final MessageMappingController controller = new MessageMappingController();
+
+    private StaticApplicationContext context;
+
+    private SimpAnnotationMethodMessageHandler messageHandler;
+
+    private Message<byte[]> implicitResponseMessage;
+    private Message<byte[]> explicitResponseMessage;
+
+    @Setup
+    public void setup() {
+        context = new StaticApplicationContext();
+        context.registerSingleton("messageMappingController", MessageMappingController.class);
+        context.refresh();
+
+        MessageChannel outboundChannel = (message, timeout) -> true;
+        messageHandler = new SimpAnnotationMethodMessageHandler(
+                new ExecutorSubscribableChannel(), outboundChannel, new SimpMessagingTemplate(outboundChannel));
+        messageHandler.setApplicationContext(context);
+        messageHandler.setDestinationPrefixes(Collections.singletonList("/app"));
+        messageHandler.afterPropertiesSet();
+
+        implicitResponseMessage = createMessage("/app/request-with-implicit-response");
+        explicitResponseMessage = createMessage("/app/request");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String invokeImplicitResponse() {
+        return controller.handleMessageWithImplicitResponse("request from <client>");
+    }
+
+    @Benchmark
+    public String invokeExplicitResponse() {
+        return controller.handleMessageWithExplicitResponse("request from <client>");
+    }
+
+    @Benchmark
+    public void dispatchImplicitResponse() {
+        messageHandler.handleMessage(implicitResponseMessage);
+    }
+
+    @Benchmark
+    public void dispatchExplicitResponse() {
+        messageHandler.handleMessage(explicitResponseMessage);
+    }
+
+    private static Message<byte[]> createMessage(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("benchmark");
+        accessor.setSessionAttributes(new ConcurrentHashMap<>());
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage("request from <client>".getBytes(StandardCharsets.UTF_8),
+                accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,117 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.server.example3.DestinationPartitionedTaskExecutor;
+import demo.websocket.stomp.TrieSubscriptionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// one operation publishes a message to every destination and waits until the broker has delivered
+// it to every subscriber; 0 partitions is the default broker channel that runs on the publishing thread
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PartitionedBrokerBenchmark {
+
+    private static final int DESTINATIONS = 64;
+    private static final int SUBSCRIBERS_PER_DESTINATION = 100;
+
+    @Param({"0", "1", "4"})
+    private int partitions;
+
+    private DestinationPartitionedTaskExecutor executor;
+
+    private ExecutorSubscribableChannel brokerChannel;
+
+    private SimpleBrokerMessageHandler broker;
+
+    private final AtomicLong delivered = new AtomicLong();
+
+    private long expected;
+
+    private Message<?>[] messages;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutboundChannel = new ExecutorSubscribableChannel();
+        clientOutboundChannel.subscribe(message -> {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                delivered.incrementAndGet();
+            }
+        });
+        if (partitions > 0) {
+            executor = new DestinationPartitionedTaskExecutor(partitions);
+            executor.setThreadNamePrefix("brokerChannel-");
+            executor.initialize();
+            brokerChannel = new ExecutorSubscribableChannel(executor);
+        } else {
+            brokerChannel = new ExecutorSubscribableChannel();
+        }
+
+        broker = new SimpleBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel,
+                Collections.singletonList("/topic"));
+        broker.setSubscriptionRegistry(new TrieSubscriptionRegistry());
+        broker.start();
+
+        messages = new Message<?>[DESTINATIONS];
+        for (int destination = 0; destination < DESTINATIONS; destination++) {
+            for (int subscriber = 0; subscriber < SUBSCRIBERS_PER_DESTINATION; subscriber++) {
+                String sessionId = "session" + destination + "-" + subscriber;
+                broker.handleMessage(message(SimpMessageType.CONNECT, sessionId, null, null));
+                broker.handleMessage(message(SimpMessageType.SUBSCRIBE, sessionId, "subscription", destination(destination)));
+            }
+            messages[destination] = message(SimpMessageType.MESSAGE, null, null, destination(destination));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        broker.stop();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long broadcast() {
+        for (Message<?> message : messages) {
+            brokerChannel.send(message);
+        }
+        expected += DESTINATIONS * SUBSCRIBERS_PER_DESTINATION;
+        long count;
+        while ((count = delivered.get()) < expected) {
+            Thread.yield();
+        }
+        return count;
+    }
+
+    private static String destination(int destination) {
+        return "/topic/destination" + destination;
+    }
+
+    private static Message<?> message(SimpMessageType type, String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,61 @@
+package demo.websocket.benchmarks;
+
+import com.sun.management.OperatingSystemMXBean;
+import demo.websocket.server.example4.domain.Performance;
+import demo.websocket.server.example4.service.ProcSampler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+// Linux only, ProcSampler needs /proc
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PerformanceSamplerBenchmark {
+
+    private final OperatingSystemMXBean operatingSystemMXBean =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private final Performance performance = new Performance();
+
+    private ProcSampler procSampler;
+
+    @Setup
+    public void setup() throws IOException {
+        procSampler = new ProcSampler();
+        procSampler.sample(performance);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        procSampler.close();
+    }
+
+    @Benchmark
+    public Performance operatingSystemMXBean() {
+        Performance performance = new Performance();
+        performance.setCommittedVirtualMemorySize(operatingSystemMXBean.getCommittedVirtualMemorySize());
+        performance.setTotalSwapSpaceSize(operatingSystemMXBean.getTotalSwapSpaceSize());
+        performance.setFreeSwapSpaceSize(operatingSystemMXBean.getFreeSwapSpaceSize());
+        performance.setTotalPhysicalMemorySize(operatingSystemMXBean.getTotalPhysicalMemorySize());
+        performance.setFreePhysicalMemorySize(operatingSystemMXBean.getFreePhysicalMemorySize());
+        performance.setSystemCpuLoad(operatingSystemMXBean.getSystemCpuLoad());
+        performance.setProcessCpuLoad(operatingSystemMXBean.getProcessCpuLoad());
+        return performance;
+    }
+
+    @Benchmark
+    public Performance procSampler() throws IOException {
+        procSampler.sample(performance);
+        return performance;
+    }
+}
@@ -0,0 +1,85 @@
+package demo.websocket.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import demo.websocket.server.example4.domain.Performance;
+import demo.websocket.server.example4.websocket.converter.PerformanceBinaryMessageConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PerformanceSerializationBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final MappingJackson2MessageConverter messageConverter = new MappingJackson2MessageConverter();
+
+    private final MessageHeaders headers = new MessageHeaders(
+            Collections.singletonMap(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON));
+
+    private final PerformanceBinaryMessageConverter binaryMessageConverter = new PerformanceBinaryMessageConverter();
+
+    private final MessageHeaders binaryHeaders = new MessageHeaders(
+            Collections.singletonMap(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+
+    private Performance performance;
+
+    private Message<?> jsonMessage;
+
+    private Message<?> binaryMessage;
+
+    @Setup
+    public void setup() {
+        performance = new Performance();
+        performance.setTime(1600000000000L);
+        performance.setCommittedVirtualMemorySize(5_678_901_248L);
+        performance.setTotalSwapSpaceSize(2_147_479_552L);
+        performance.setFreeSwapSpaceSize(2_003_156_992L);
+        performance.setTotalPhysicalMemorySize(16_655_077_376L);
+        performance.setFreePhysicalMemorySize(7_293_202_432L);
+        performance.setSystemCpuLoad(0.1234567890123);
+        performance.setProcessCpuLoad(0.0123456789012);
+
+        jsonMessage = messageConverter.toMessage(performance, headers);
+        binaryMessage = binaryMessageConverter.toMessage(performance, binaryHeaders);
+    }
+
+    @Benchmark
+    public byte[] objectMapper() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(performance);
+    }
+
+    @Benchmark
+    public Message<?> messageConverter() {
+        return messageConverter.toMessage(performance, headers);
+    }
+
+    @Benchmark
+    public Message<?> binaryMessageConverter() {
+        return binaryMessageConverter.toMessage(performance, binaryHeaders);
+    }
+
+    @Benchmark
+    public Object messageConverterRead() {
+        return messageConverter.fromMessage(jsonMessage, Performance.class);
+    }
+
+    @Benchmark
+    public Object binaryMessageConverterRead() {
+        return binaryMessageConverter.fromMessage(binaryMessage, Performance.class);
+    }
+}
@@ -0,0 +1,103 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.server.example4.domain.Performance;
+import demo.websocket.server.example4.store.PerformanceStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PerformanceStoreBenchmark {
+
+    private static final int SEGMENT_RECORDS = 1 << 20;
+
+    private static final int SCAN_RECORDS = 1_000_000;
+
+    @State(Scope.Benchmark)
+    public static class AppendState {
+
+        private Path directory;
+
+        private PerformanceStore store;
+
+        private final Performance performance = performance(1600000000000L);
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("performance-store-append");
+            store = new PerformanceStore(directory, SEGMENT_RECORDS, Duration.ofDays(365), DataSize.ofMegabytes(512));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            store.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ScanState {
+
+        private Path directory;
+
+        private PerformanceStore store;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            directory = Files.createTempDirectory("performance-store-scan");
+            store = new PerformanceStore(directory, SEGMENT_RECORDS, Duration.ofDays(365), DataSize.ofMegabytes(512));
+            Performance performance = performance(1600000000000L);
+            for (int i = 0; i < SCAN_RECORDS; i++) {
+                performance.setTime(performance.getTime() + 1);
+                store.append(performance);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            store.close();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    public void append(AppendState state) {
+        state.performance.setTime(state.performance.getTime() + 1);
+        state.store.append(state.performance);
+    }
+
+    // one operation reads all records, divide the score by SCAN_RECORDS for records per millisecond
+    @Benchmark
+    public void scan(ScanState state, Blackhole blackhole) {
+        state.store.scan(Long.MIN_VALUE, Long.MAX_VALUE, record -> blackhole.consume(record.getSystemCpuLoad()));
+    }
+
+    private static Performance performance(long time) {
+        Performance performance = new Performance();
+        performance.setTime(time);
+        performance.setCommittedVirtualMemorySize(5_678_901_248L);
+        performance.setTotalSwapSpaceSize(2_147_479_552L);
+        performance.setFreeSwapSpaceSize(2_003_156_992L);
+        performance.setTotalPhysicalMemorySize(16_655_077_376L);
+        performance.setFreePhysicalMemorySize(7_293_202_432L);
+        performance.setSystemCpuLoad(0.1234567890123);
+        performance.setProcessCpuLoad(0.0123456789012);
+        return performance;
+    }
+}
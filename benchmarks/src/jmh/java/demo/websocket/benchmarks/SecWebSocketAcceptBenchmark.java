@@ -0,0 +1,25 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.server.example0.SecWebSocketAccept;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SecWebSocketAcceptBenchmark {
+
+    private final String secWebSocketKey = "7c0RT+Z1px24ypyYfnPNbw==";
+
+    @Benchmark
+    public String compute() throws NoSuchAlgorithmException {
+        return SecWebSocketAccept.compute(secWebSocketKey);
+    }
+}
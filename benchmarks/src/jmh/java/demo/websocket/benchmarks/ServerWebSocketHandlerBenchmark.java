@@ -0,0 +1,51 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.broadcast.SessionBroadcaster;
+import demo.websocket.broadcast.SessionRegistry;
+import demo.websocket.server.example1.ByteBufferPool;
+import demo.websocket.server.example1.ServerWebSocketHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.util.HtmlUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ServerWebSocketHandlerBenchmark {
+
+    private ServerWebSocketHandler handler;
+
+    private WebSocketSession session;
+
+    private TextMessage message;
+
+    @Setup
+    public void setup() throws Exception {
+        SessionBroadcaster broadcaster = new SessionBroadcaster(Runnable::run, 5000, 65536,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        handler = new ServerWebSocketHandler(new SessionRegistry(), broadcaster, new ByteBufferPool(65536, 256));
+        session = new NoOpWebSocketSession("benchmark");
+        handler.afterConnectionEstablished(session);
+        message = new TextMessage("request from <client> & \"friends\"");
+    }
+
+    @Benchmark
+    public void handleTextMessage() throws Exception {
+        handler.handleTextMessage(session, message);
+    }
+
+    @Benchmark
+    public String formatResponse() {
+        return String.format("response from server to '%s'", HtmlUtils.htmlEscape(message.getPayload()));
+    }
+}
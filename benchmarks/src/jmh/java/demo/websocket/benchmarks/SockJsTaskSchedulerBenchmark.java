@@ -0,0 +1,81 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.server.example2.HashedWheelTaskScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// every session has a pending heartbeat, and a message sent to a session cancels its heartbeat and schedules
+// the next one, as a SockJS session does; the thread pool scheduler is configured as the default SockJS one
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SockJsTaskSchedulerBenchmark {
+
+    private static final long HEARTBEAT_TIME = 25000;
+
+    private static final Runnable HEARTBEAT = () -> {
+    };
+
+    @Param({"threadPool", "hashedWheel"})
+    private String scheduler;
+
+    @Param({"1000", "200000"})
+    private int sessions;
+
+    private TaskScheduler taskScheduler;
+
+    private ScheduledFuture<?>[] heartbeats;
+
+    private int index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if ("hashedWheel".equals(scheduler)) {
+            taskScheduler = new HashedWheelTaskScheduler(100, 512, Runtime.getRuntime().availableProcessors());
+        } else {
+            ThreadPoolTaskScheduler threadPoolTaskScheduler = new ThreadPoolTaskScheduler();
+            threadPoolTaskScheduler.setPoolSize(Runtime.getRuntime().availableProcessors());
+            threadPoolTaskScheduler.setRemoveOnCancelPolicy(true);
+            threadPoolTaskScheduler.initialize();
+            taskScheduler = threadPoolTaskScheduler;
+        }
+
+        heartbeats = new ScheduledFuture<?>[sessions];
+        for (int i = 0; i < sessions; i++) {
+            heartbeats[i] = taskScheduler.schedule(HEARTBEAT, new Date(System.currentTimeMillis() + HEARTBEAT_TIME));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (taskScheduler instanceof HashedWheelTaskScheduler) {
+            ((HashedWheelTaskScheduler) taskScheduler).destroy();
+        } else {
+            ((ThreadPoolTaskScheduler) taskScheduler).shutdown();
+        }
+    }
+
+    @Benchmark
+    public ScheduledFuture<?> rescheduleHeartbeat() {
+        int session = index++;
+        if (index == sessions) {
+            index = 0;
+        }
+        heartbeats[session].cancel(false);
+        return heartbeats[session] = taskScheduler.schedule(HEARTBEAT, new Date(System.currentTimeMillis() + HEARTBEAT_TIME));
+    }
+}
@@ -0,0 +1,140 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.stomp.TrieSubscriptionRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// ten subscriptions per destination in groups of a hundred destinations, one subscription in a hundred
+// is to a pattern over its group; both registries use a cache of the default limit of 1024 destinations
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SubscriptionRegistryBenchmark {
+
+    private static final int SUBSCRIPTIONS_PER_DESTINATION = 10;
+    private static final int DESTINATIONS_PER_GROUP = 100;
+    private static final int PATTERN_SUBSCRIPTION_RATE = 100;
+
+    // more destinations than the cache holds, and fewer
+    private static final int COLD_DESTINATIONS = 4096;
+    private static final int HOT_DESTINATIONS = 64;
+
+    private static final int CHURN_SUBSCRIPTIONS = 1024;
+
+    @Param({"default", "trie"})
+    private String registry;
+
+    @Param({"10000", "100000", "1000000"})
+    private int subscriptions;
+
+    private SubscriptionRegistry subscriptionRegistry;
+
+    private Message<?>[] coldMessages;
+    private Message<?>[] hotMessages;
+
+    private Message<?>[] subscribeMessages;
+    private Message<?>[] unsubscribeMessages;
+    private Message<?>[] churnMessages;
+
+    private int coldIndex;
+    private int hotIndex;
+    private int churnIndex;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        subscriptionRegistry = "trie".equals(registry) ? new TrieSubscriptionRegistry() : new DefaultSubscriptionRegistry();
+
+        int destinations = subscriptions / SUBSCRIPTIONS_PER_DESTINATION;
+        for (int i = 0; i < subscriptions; i++) {
+            int destination = i % destinations;
+            String subscribed = (i % PATTERN_SUBSCRIPTION_RATE == 0)
+                    ? "/topic/group" + (destination / DESTINATIONS_PER_GROUP) + "/*"
+                    : destination(destination);
+            // two subscriptions per session
+            subscriptionRegistry.registerSubscription(subscribe("session" + (i / 2), "subscription" + (i % 2), subscribed));
+        }
+
+        Random random = new Random(0);
+        coldMessages = new Message<?>[COLD_DESTINATIONS];
+        for (int i = 0; i < coldMessages.length; i++) {
+            coldMessages[i] = message(destination(random.nextInt(destinations)));
+        }
+        hotMessages = new Message<?>[HOT_DESTINATIONS];
+        for (int i = 0; i < hotMessages.length; i++) {
+            hotMessages[i] = message(destination(random.nextInt(destinations)));
+        }
+
+        subscribeMessages = new Message<?>[CHURN_SUBSCRIPTIONS];
+        unsubscribeMessages = new Message<?>[CHURN_SUBSCRIPTIONS];
+        churnMessages = new Message<?>[CHURN_SUBSCRIPTIONS];
+        for (int i = 0; i < CHURN_SUBSCRIPTIONS; i++) {
+            String destination = destination(random.nextInt(destinations));
+            subscribeMessages[i] = subscribe("churn", "subscription" + i, destination);
+            unsubscribeMessages[i] = unsubscribe("churn", "subscription" + i);
+            churnMessages[i] = message(destination);
+        }
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> coldLookup() {
+        Message<?> message = coldMessages[coldIndex++ & (COLD_DESTINATIONS - 1)];
+        return subscriptionRegistry.findSubscriptions(message);
+    }
+
+    @Benchmark
+    public MultiValueMap<String, String> hotLookup() {
+        Message<?> message = hotMessages[hotIndex++ & (HOT_DESTINATIONS - 1)];
+        return subscriptionRegistry.findSubscriptions(message);
+    }
+
+    // a subscription to an existing destination and its removal, followed by a lookup of the destination
+    @Benchmark
+    public MultiValueMap<String, String> churn() {
+        int index = churnIndex++ & (CHURN_SUBSCRIPTIONS - 1);
+        subscriptionRegistry.registerSubscription(subscribeMessages[index]);
+        subscriptionRegistry.unregisterSubscription(unsubscribeMessages[index]);
+        return subscriptionRegistry.findSubscriptions(churnMessages[index]);
+    }
+
+    private static String destination(int destination) {
+        return "/topic/group" + (destination / DESTINATIONS_PER_GROUP) + "/destination" + destination;
+    }
+
+    private static Message<?> subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<?> unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private static Message<?> message(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
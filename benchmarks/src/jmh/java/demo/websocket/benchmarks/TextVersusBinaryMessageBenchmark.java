@@ -0,0 +1,64 @@
+package demo.websocket.benchmarks;
+
+import demo.websocket.broadcast.SessionBroadcaster;
+import demo.websocket.broadcast.SessionRegistry;
+import demo.websocket.server.example1.ByteBufferPool;
+import demo.websocket.server.example1.ServerWebSocketHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TextVersusBinaryMessageBenchmark {
+
+    @Param({"64", "1024", "8192"})
+    private int payloadSize;
+
+    private ServerWebSocketHandler handler;
+
+    private WebSocketSession session;
+
+    private TextMessage textMessage;
+
+    private BinaryMessage binaryMessage;
+
+    @Setup
+    public void setup() throws Exception {
+        SessionBroadcaster broadcaster = new SessionBroadcaster(Runnable::run, 5000, 65536,
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        handler = new ServerWebSocketHandler(new SessionRegistry(), broadcaster, new ByteBufferPool(65536, 256));
+        session = new NoOpWebSocketSession("benchmark");
+        handler.afterConnectionEstablished(session);
+
+        char[] chars = new char[payloadSize];
+        Arrays.fill(chars, 'x');
+        String payload = new String(chars);
+        textMessage = new TextMessage(payload);
+        binaryMessage = new BinaryMessage(payload.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public void text() throws Exception {
+        handler.handleMessage(session, textMessage);
+    }
+
+    @Benchmark
+    public void binary() throws Exception {
+        handler.handleMessage(session, binaryMessage);
+    }
+}
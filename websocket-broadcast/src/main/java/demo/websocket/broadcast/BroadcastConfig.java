@@ -0,0 +1,53 @@
+package demo.websocket.broadcast;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+@Configuration
+public class BroadcastConfig {
+
+    @Value("${broadcast.pool-size}")
+    private int poolSize;
+
+    @Value("${broadcast.send-time-limit}")
+    private int sendTimeLimit;
+
+    @Value("${broadcast.buffer-size-limit}")
+    private int bufferSizeLimit;
+
+    @Value("${broadcast.overflow-strategy}")
+    private ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy;
+
+    // the send-time limit is only checked on the next send, so a stalled client keeps its thread blocked:
+    // without a queue the pool grows instead, and the decorated sessions block at most one thread each
+    @Bean
+    public ThreadPoolTaskExecutor broadcastExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(Integer.MAX_VALUE);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("broadcast-");
+        executor.setDaemon(true);
+
+        return executor;
+    }
+
+    @Bean
+    public SessionBroadcaster sessionBroadcaster() {
+        return new SessionBroadcaster(broadcastExecutor(), sendTimeLimit, bufferSizeLimit, overflowStrategy);
+    }
+
+    @Bean
+    public SessionRegistry sessionRegistry() {
+        return new SessionRegistry();
+    }
+
+    @Bean
+    public SessionController sessionController() {
+        return new SessionController(sessionRegistry(), sessionBroadcaster());
+    }
+}
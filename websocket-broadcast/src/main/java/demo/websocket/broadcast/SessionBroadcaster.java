@@ -0,0 +1,65 @@
+package demo.websocket.broadcast;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import org.springframework.web.socket.handler.SessionLimitExceededException;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.Executor;
+
+public class SessionBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionBroadcaster.class);
+
+    private final Executor executor;
+
+    private final int sendTimeLimit;
+    private final int bufferSizeLimit;
+    private final ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy;
+
+    public SessionBroadcaster(Executor executor, int sendTimeLimit, int bufferSizeLimit,
+                              ConcurrentWebSocketSessionDecorator.OverflowStrategy overflowStrategy) {
+        this.executor = executor;
+        this.sendTimeLimit = sendTimeLimit;
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.overflowStrategy = overflowStrategy;
+    }
+
+    public WebSocketSession decorate(WebSocketSession session) {
+        return new ConcurrentWebSocketSessionDecorator(session, sendTimeLimit, bufferSizeLimit, overflowStrategy);
+    }
+
+    // one task per session, so a session that stops reading holds at most one executor thread
+    public void broadcast(Collection<WebSocketSession> sessions, WebSocketMessage<?> message) {
+        for (WebSocketSession session : sessions) {
+            executor.execute(() -> send(session, message));
+        }
+    }
+
+    public void send(WebSocketSession session, WebSocketMessage<?> message) {
+        if (!session.isOpen()) {
+            return;
+        }
+        try {
+            session.sendMessage(message);
+        } catch (SessionLimitExceededException e) {
+            logger.info("Server closes slow session {}: {}", session.getId(), e.getMessage());
+            close(session, e.getStatus());
+        } catch (IOException e) {
+            logger.info("Server send error: {}", e.getMessage());
+        }
+    }
+
+    private void close(WebSocketSession session, CloseStatus status) {
+        try {
+            session.close(status);
+        } catch (IOException e) {
+            logger.info("Server close error: {}", e.getMessage());
+        }
+    }
+}
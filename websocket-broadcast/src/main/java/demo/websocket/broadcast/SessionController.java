@@ -0,0 +1,56 @@
+package demo.websocket.broadcast;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+// targeted sends go through the registry indexes, so they do not scan every session
+@RestController
+public class SessionController {
+
+    private final SessionRegistry sessions;
+
+    private final SessionBroadcaster broadcaster;
+
+    public SessionController(SessionRegistry sessions, SessionBroadcaster broadcaster) {
+        this.sessions = sessions;
+        this.broadcaster = broadcaster;
+    }
+
+    @PostMapping("/sessions/tags/{tag}/messages")
+    public int sendToTag(@PathVariable String tag, @RequestBody String message) {
+        return send(sessions.getSessionsByTag(tag), message);
+    }
+
+    @PostMapping("/sessions/protocols/{protocol:.+}/messages")
+    public int sendToProtocol(@PathVariable String protocol, @RequestBody String message) {
+        return send(sessions.getSessionsByProtocol(protocol), message);
+    }
+
+    @PutMapping("/sessions/{sessionId}/tags/{tag}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void tag(@PathVariable String sessionId, @PathVariable String tag) {
+        sessions.tag(sessionId, tag);
+    }
+
+    @DeleteMapping("/sessions/{sessionId}/tags/{tag}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void untag(@PathVariable String sessionId, @PathVariable String tag) {
+        sessions.untag(sessionId, tag);
+    }
+
+    private int send(Collection<WebSocketSession> targets, String message) {
+        broadcaster.broadcast(targets, new TextMessage(message.getBytes(StandardCharsets.UTF_8)));
+        return targets.size();
+    }
+}
@@ -0,0 +1,106 @@
+package demo.websocket.broadcast;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SessionRegistry {
+
+    public static final String TAGS_ATTRIBUTE = "tags";
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, Set<WebSocketSession>> sessionsByProtocol = new ConcurrentHashMap<>();
+    private final Map<String, Set<WebSocketSession>> sessionsByTag = new ConcurrentHashMap<>();
+
+    public void add(WebSocketSession session) {
+        sessions.put(session.getId(), session);
+
+        String protocol = session.getAcceptedProtocol();
+        if (protocol != null) {
+            index(sessionsByProtocol, protocol, session);
+        }
+        for (String tag : getTags(session)) {
+            index(sessionsByTag, tag, session);
+        }
+    }
+
+    public void remove(String sessionId) {
+        WebSocketSession session = sessions.remove(sessionId);
+        if (session == null) {
+            return;
+        }
+
+        String protocol = session.getAcceptedProtocol();
+        if (protocol != null) {
+            unindex(sessionsByProtocol, protocol, session);
+        }
+        for (String tag : getTags(session)) {
+            unindex(sessionsByTag, tag, session);
+        }
+    }
+
+    public WebSocketSession get(String sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    public Collection<WebSocketSession> getSessions() {
+        return sessions.values();
+    }
+
+    public Collection<WebSocketSession> getSessionsByProtocol(String protocol) {
+        return sessionsByProtocol.getOrDefault(protocol, Collections.emptySet());
+    }
+
+    public Collection<WebSocketSession> getSessionsByTag(String tag) {
+        return sessionsByTag.getOrDefault(tag, Collections.emptySet());
+    }
+
+    public void tag(String sessionId, String tag) {
+        WebSocketSession session = sessions.get(sessionId);
+        if (session != null && getTags(session).add(tag)) {
+            index(sessionsByTag, tag, session);
+            if (sessions.get(sessionId) != session) {
+                unindex(sessionsByTag, tag, session);
+            }
+        }
+    }
+
+    public void untag(String sessionId, String tag) {
+        WebSocketSession session = sessions.get(sessionId);
+        if (session != null && getTags(session).remove(tag)) {
+            unindex(sessionsByTag, tag, session);
+        }
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> getTags(WebSocketSession session) {
+        return (Set<String>) session.getAttributes().computeIfAbsent(TAGS_ATTRIBUTE, key -> ConcurrentHashMap.newKeySet());
+    }
+
+    // index buckets are created and dropped inside compute() so a concurrent add never lands in a removed bucket
+    private static void index(Map<String, Set<WebSocketSession>> index, String key, WebSocketSession session) {
+        index.compute(key, (k, bucket) -> {
+            if (bucket == null) {
+                bucket = ConcurrentHashMap.newKeySet();
+            }
+            bucket.add(session);
+            return bucket;
+        });
+    }
+
+    private static void unindex(Map<String, Set<WebSocketSession>> index, String key, WebSocketSession session) {
+        index.computeIfPresent(key, (k, bucket) -> {
+            bucket.remove(session);
+            return bucket.isEmpty() ? null : bucket;
+        });
+    }
+}
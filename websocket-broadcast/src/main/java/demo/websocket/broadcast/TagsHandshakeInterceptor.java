@@ -0,0 +1,32 @@
+package demo.websocket.broadcast;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class TagsHandshakeInterceptor implements HandshakeInterceptor {
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        List<String> tags = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().get("tag");
+        if (tags != null) {
+            Set<String> sessionTags = ConcurrentHashMap.newKeySet();
+            sessionTags.addAll(tags);
+            attributes.put(SessionRegistry.TAGS_ATTRIBUTE, sessionTags);
+        }
+        return true;
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
@@ -0,0 +1,133 @@
+package demo.websocket.compression;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+
+public class CompressionMetrics {
+
+    // permessage-deflate strips the empty stored block that ends every sync flush
+    private static final int SYNC_FLUSH_TRAILER_LENGTH = 4;
+
+    private final String endpoint;
+
+    private final int sampleRate;
+
+    private final LongAdder sessions = new LongAdder();
+
+    private final LongAdder compressedSessions = new LongAdder();
+
+    private final LongAdder messages = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder samples = new LongAdder();
+
+    private final LongAdder sampledBytes = new LongAdder();
+
+    private final LongAdder sampledCompressedBytes = new LongAdder();
+
+    private final LongAdder sampledNanos = new LongAdder();
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+    private final byte[] output = new byte[8192];
+
+    public CompressionMetrics(String endpoint, int sampleRate) {
+        this.endpoint = endpoint;
+        this.sampleRate = sampleRate;
+    }
+
+    public void sessionOpened(boolean compressed) {
+        sessions.increment();
+        if (compressed) {
+            compressedSessions.increment();
+        }
+    }
+
+    public void record(WebSocketMessage<?> message) {
+        if (!(message instanceof TextMessage) && !(message instanceof BinaryMessage)) {
+            return;
+        }
+        messages.increment();
+        bytes.add(message.getPayloadLength());
+
+        if (sequence.incrementAndGet() % sampleRate == 0) {
+            ByteBuffer payload = (message instanceof TextMessage) ?
+                    ByteBuffer.wrap(((TextMessage) message).asBytes()) :
+                    ((BinaryMessage) message).getPayload().duplicate();
+            sample(payload);
+        }
+    }
+
+    // Tomcat does not expose its deflater, so the ratio and cost are estimated by compressing sampled payloads
+    // with a fresh context, which matches no_context_takeover and understates the ratio with context takeover
+    private synchronized void sample(ByteBuffer payload) {
+        int length = payload.remaining();
+        long start = System.nanoTime();
+        deflater.reset();
+        deflater.setInput(payload);
+        long compressedLength = 0;
+        int n;
+        do {
+            n = deflater.deflate(output, 0, output.length, Deflater.SYNC_FLUSH);
+            compressedLength += n;
+        } while (n == output.length);
+        sampledNanos.add(System.nanoTime() - start);
+
+        samples.increment();
+        sampledBytes.add(length);
+        sampledCompressedBytes.add(compressedLength - SYNC_FLUSH_TRAILER_LENGTH);
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public long getSessions() {
+        return sessions.sum();
+    }
+
+    public long getCompressedSessions() {
+        return compressedSessions.sum();
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getSamples() {
+        return samples.sum();
+    }
+
+    public double getCompressionRatio() {
+        long compressed = sampledCompressedBytes.sum();
+        return compressed > 0 ? (double) sampledBytes.sum() / compressed : 0;
+    }
+
+    public long getEstimatedCompressedBytes() {
+        double ratio = getCompressionRatio();
+        return ratio > 0 ? (long) (getBytes() / ratio) : 0;
+    }
+
+    public double getNanosPerMessage() {
+        long count = samples.sum();
+        return count > 0 ? (double) sampledNanos.sum() / count : 0;
+    }
+
+    public double getNanosPerKilobyte() {
+        long length = sampledBytes.sum();
+        return length > 0 ? sampledNanos.sum() * 1024d / length : 0;
+    }
+}
@@ -0,0 +1,43 @@
+package demo.websocket.compression;
+
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+
+public class CompressionMetricsWebSocketHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final CompressionMetrics metrics;
+
+    public CompressionMetricsWebSocketHandlerDecorator(WebSocketHandler delegate, CompressionMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        boolean compressed = session.getExtensions().stream()
+                .anyMatch(extension -> PerMessageDeflateHandshakeHandler.PERMESSAGE_DEFLATE.equals(extension.getName()));
+        metrics.sessionOpened(compressed);
+        super.afterConnectionEstablished(compressed ? new MeasuringWebSocketSession(session, metrics) : session);
+    }
+
+    private static class MeasuringWebSocketSession extends WebSocketSessionDecorator {
+
+        private final CompressionMetrics metrics;
+
+        MeasuringWebSocketSession(WebSocketSession session, CompressionMetrics metrics) {
+            super(session);
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            metrics.record(message);
+            super.sendMessage(message);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package demo.websocket.compression;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+public class CompressionStatsController {
+
+    private final CompressionMetrics compressionMetrics;
+
+    public CompressionStatsController(CompressionMetrics compressionMetrics) {
+        this.compressionMetrics = compressionMetrics;
+    }
+
+    @GetMapping("/compression-stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("endpoint", compressionMetrics.getEndpoint());
+        stats.put("sessions", compressionMetrics.getSessions());
+        stats.put("compressedSessions", compressionMetrics.getCompressedSessions());
+        stats.put("messages", compressionMetrics.getMessages());
+        stats.put("bytes", compressionMetrics.getBytes());
+        stats.put("estimatedCompressedBytes", compressionMetrics.getEstimatedCompressedBytes());
+        stats.put("compressionRatio", compressionMetrics.getCompressionRatio());
+        stats.put("samples", compressionMetrics.getSamples());
+        stats.put("nanosPerMessage", compressionMetrics.getNanosPerMessage());
+        stats.put("nanosPerKilobyte", compressionMetrics.getNanosPerKilobyte());
+        return stats;
+    }
+}
@@ -0,0 +1,143 @@
+package demo.websocket.compression;
+
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.server.HandshakeFailureException;
+import org.springframework.web.socket.server.RequestUpgradeStrategy;
+import org.springframework.web.socket.server.standard.TomcatRequestUpgradeStrategy;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+
+public class PerMessageDeflateHandshakeHandler extends DefaultHandshakeHandler {
+
+    public static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+
+    private static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+
+    public PerMessageDeflateHandshakeHandler(boolean enabled, boolean serverNoContextTakeover, boolean clientNoContextTakeover) {
+        super(new PerMessageDeflateUpgradeStrategy(new TomcatRequestUpgradeStrategy(), enabled,
+                serverNoContextTakeover, clientNoContextTakeover));
+    }
+
+    // Tomcat negotiates extensions from the raw request header rather than from the extensions selected by Spring,
+    // so the permessage-deflate offers are dropped or amended in the header before the upgrade
+    private static class PerMessageDeflateUpgradeStrategy implements RequestUpgradeStrategy {
+
+        private final RequestUpgradeStrategy delegate;
+
+        private final boolean enabled;
+
+        private final boolean serverNoContextTakeover;
+
+        private final boolean clientNoContextTakeover;
+
+        PerMessageDeflateUpgradeStrategy(RequestUpgradeStrategy delegate, boolean enabled,
+                boolean serverNoContextTakeover, boolean clientNoContextTakeover) {
+            this.delegate = delegate;
+            this.enabled = enabled;
+            this.serverNoContextTakeover = serverNoContextTakeover;
+            this.clientNoContextTakeover = clientNoContextTakeover;
+        }
+
+        @Override
+        public String[] getSupportedVersions() {
+            return delegate.getSupportedVersions();
+        }
+
+        @Override
+        public List<WebSocketExtension> getSupportedExtensions(ServerHttpRequest request) {
+            return delegate.getSupportedExtensions(request);
+        }
+
+        @Override
+        public void upgrade(ServerHttpRequest request, ServerHttpResponse response, String selectedProtocol,
+                List<WebSocketExtension> selectedExtensions, Principal user, WebSocketHandler wsHandler,
+                Map<String, Object> attributes) throws HandshakeFailureException {
+
+            HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+            List<String> offers = rewriteOffers(servletRequest.getHeaders(WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS));
+            ServerHttpRequest rewrittenRequest = new ServletServerHttpRequest(new ExtensionsHeaderRequestWrapper(servletRequest, offers));
+            delegate.upgrade(rewrittenRequest, response, selectedProtocol, selectedExtensions, user, wsHandler, attributes);
+        }
+
+        private List<String> rewriteOffers(Enumeration<String> headers) {
+            List<String> offers = new ArrayList<>();
+            while (headers.hasMoreElements()) {
+                for (String offer : headers.nextElement().split(",")) {
+                    offer = offer.trim();
+                    if (offer.isEmpty()) {
+                        continue;
+                    }
+                    if (!PERMESSAGE_DEFLATE.equalsIgnoreCase(name(offer))) {
+                        offers.add(offer);
+                    } else if (enabled) {
+                        if (serverNoContextTakeover && !hasParameter(offer, SERVER_NO_CONTEXT_TAKEOVER)) {
+                            offer += ";" + SERVER_NO_CONTEXT_TAKEOVER;
+                        }
+                        if (clientNoContextTakeover && !hasParameter(offer, CLIENT_NO_CONTEXT_TAKEOVER)) {
+                            offer += ";" + CLIENT_NO_CONTEXT_TAKEOVER;
+                        }
+                        offers.add(offer);
+                    }
+                }
+            }
+            return offers;
+        }
+
+        private static String name(String offer) {
+            int index = offer.indexOf(';');
+            return (index < 0 ? offer : offer.substring(0, index)).trim();
+        }
+
+        private static boolean hasParameter(String offer, String parameter) {
+            String[] parts = offer.split(";");
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].split("=")[0].trim().equalsIgnoreCase(parameter)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class ExtensionsHeaderRequestWrapper extends HttpServletRequestWrapper {
+
+        private final List<String> offers;
+
+        ExtensionsHeaderRequestWrapper(HttpServletRequest request, List<String> offers) {
+            super(request);
+            this.offers = offers;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (!isExtensionsHeader(name)) {
+                return super.getHeader(name);
+            }
+            return offers.isEmpty() ? null : String.join(", ", offers);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            return isExtensionsHeader(name) ? Collections.enumeration(offers) : super.getHeaders(name);
+        }
+
+        private static boolean isExtensionsHeader(String name) {
+            return WebSocketHttpHeaders.SEC_WEBSOCKET_EXTENSIONS.equalsIgnoreCase(name);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package demo.websocket.loadgen;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class LoadGenerator implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadGenerator.class);
+
+    @Value("${loadgen.transport}")
+    private String transport;
+
+    @Value("${loadgen.url}")
+    private String[] urls;
+
+    @Value("${loadgen.connections}")
+    private int connections;
+
+    @Value("${loadgen.connect-rate}")
+    private int connectRate;
+
+    @Value("${loadgen.send-rate}")
+    private double sendRate;
+
+    @Value("${loadgen.duration}")
+    private long duration;
+
+    @Value("${loadgen.report-interval}")
+    private long reportInterval;
+
+    @Value("${loadgen.stomp.send-destination}")
+    private String stompSendDestination;
+
+    @Value("${loadgen.stomp.subscriptions}")
+    private String[] stompSubscriptions;
+
+    private final WebSocketClient webSocketClient;
+
+    private final WebSocketStompClient webSocketStompClient;
+
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private final LoadMetrics metrics;
+
+    private final Queue<WebSocketSession> sessions = new ConcurrentLinkedQueue<>();
+    private final Queue<StompSession> stompSessions = new ConcurrentLinkedQueue<>();
+    private final Queue<ScheduledFuture<?>> sendTasks = new ConcurrentLinkedQueue<>();
+
+    public LoadGenerator(WebSocketClient webSocketClient, WebSocketStompClient webSocketStompClient,
+                         ThreadPoolTaskScheduler loadScheduler, LoadMetrics metrics) {
+        this.webSocketClient = webSocketClient;
+        this.webSocketStompClient = webSocketStompClient;
+        this.scheduler = loadScheduler;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws InterruptedException {
+        if (!transport.equals("websocket") && !transport.equals("sockjs") && !transport.equals("stomp")) {
+            throw new IllegalArgumentException("Unknown transport: " + transport);
+        }
+
+        logger.info("Opening {} {} sessions to {} at {} per second, sending {} messages per second per session",
+                connections, transport, String.join(", ", urls), connectRate, sendRate);
+
+        Instant start = Instant.now();
+        long connectPeriod = 1_000_000L / connectRate;
+        for (int i = 0; i < connections; i++) {
+            // sessions are spread round-robin over the nodes
+            String url = urls[i % urls.length].trim();
+            scheduler.schedule(() -> connect(url), start.plus(i * connectPeriod, ChronoUnit.MICROS));
+        }
+
+        Duration period = Duration.ofSeconds(reportInterval);
+        ScheduledFuture<?> reporter = scheduler.scheduleAtFixedRate(metrics::report, start.plus(period), period);
+
+        Thread.sleep(Duration.ofSeconds(duration).toMillis());
+
+        reporter.cancel(false);
+        sendTasks.forEach(task -> task.cancel(false));
+        metrics.reportTotal();
+        close();
+    }
+
+    private void connect(String url) {
+        long connectStartTime = System.nanoTime();
+        if (transport.equals("stomp")) {
+            MeasuringStompSessionHandler handler = new MeasuringStompSessionHandler(
+                    metrics, connectStartTime, nodeName(url), pickSubscriptions(), this::startSending);
+            webSocketStompClient.connect(url, handler)
+                    .addCallback(session -> {
+                    }, this::connectFailed);
+        } else {
+            MeasuringWebSocketHandler handler = new MeasuringWebSocketHandler(
+                    createClientHandler(), metrics, connectStartTime, this::startSending);
+            webSocketClient.doHandshake(handler, url)
+                    .addCallback(session -> {
+                    }, this::connectFailed);
+        }
+    }
+
+    private WebSocketHandler createClientHandler() {
+        if (transport.equals("sockjs")) {
+            return new demo.websocket.client.example2.ClientWebSocketHandler();
+        }
+        return new demo.websocket.client.example1.ClientWebSocketHandler();
+    }
+
+    // the STOMP server names its node after its port by default
+    private static String nodeName(String url) {
+        int port = URI.create(url).getPort();
+        return (port >= 0) ? String.valueOf(port) : null;
+    }
+
+    private List<String> pickSubscriptions() {
+        List<String> subscriptions = new ArrayList<>();
+        for (String subscription : stompSubscriptions) {
+            int separator = subscription.lastIndexOf(':');
+            String destination = subscription.substring(0, separator).trim();
+            double probability = Double.parseDouble(subscription.substring(separator + 1));
+            if (ThreadLocalRandom.current().nextDouble() < probability) {
+                subscriptions.add(destination);
+            }
+        }
+        return subscriptions;
+    }
+
+    private void connectFailed(Throwable exception) {
+        metrics.recordConnectFailure();
+        logger.debug("Connection failed: {}", exception.getMessage());
+    }
+
+    // each session is sent to by a single fixed-rate task, so sends to one session never overlap
+    private void startSending(WebSocketSession session) {
+        sessions.add(session);
+        scheduleSends(() -> {
+            if (session.isOpen()) {
+                try {
+                    session.sendMessage(new TextMessage(LoadMetrics.createRequest()));
+                    metrics.recordSend();
+                } catch (IOException e) {
+                    logger.debug("Send failed: {}", e.getMessage());
+                }
+            }
+        });
+    }
+
+    private void startSending(StompSession session) {
+        stompSessions.add(session);
+        scheduleSends(() -> {
+            if (session.isConnected()) {
+                session.send(stompSendDestination, LoadMetrics.createRequest());
+                metrics.recordSend();
+            }
+        });
+    }
+
+    private void scheduleSends(Runnable send) {
+        if (sendRate <= 0) {
+            return;
+        }
+        long period = (long) (1_000_000 / sendRate);
+        Instant first = Instant.now().plus(ThreadLocalRandom.current().nextLong(period), ChronoUnit.MICROS);
+        sendTasks.add(scheduler.scheduleAtFixedRate(send, first, Duration.of(period, ChronoUnit.MICROS)));
+    }
+
+    private void close() {
+        for (WebSocketSession session : sessions) {
+            try {
+                session.close(CloseStatus.GOING_AWAY);
+            } catch (IOException e) {
+                logger.debug("Close failed: {}", e.getMessage());
+            }
+        }
+        stompSessions.forEach(StompSession::disconnect);
+    }
+}
@@ -0,0 +1,18 @@
+package demo.websocket.loadgen;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+
+@SpringBootApplication
+public class LoadGeneratorApplication {
+
+    public static void main(String[] args) {
+        System.exit(SpringApplication.exit(
+                new SpringApplicationBuilder(LoadGeneratorApplication.class)
+                        .web(WebApplicationType.NONE)
+                        .run(args)
+        ));
+    }
+}
@@ -0,0 +1,65 @@
+package demo.websocket.loadgen;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.web.socket.client.WebSocketClient;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.RestTemplateXhrTransport;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.Transport;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class LoadGeneratorConfig {
+
+    @Value("${loadgen.transport}")
+    private String transport;
+
+    @Value("${loadgen.url}")
+    private String url;
+
+    @Value("${loadgen.scheduler-pool-size}")
+    private int schedulerPoolSize;
+
+    @Bean
+    public ThreadPoolTaskScheduler loadScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+        scheduler.setPoolSize(schedulerPoolSize);
+        scheduler.setThreadNamePrefix("loadgen-");
+        scheduler.setDaemon(true);
+
+        return scheduler;
+    }
+
+    @Bean
+    public WebSocketClient webSocketClient() {
+        if (transport.equals("websocket") || (transport.equals("stomp") && url.startsWith("ws"))) {
+            return new StandardWebSocketClient();
+        }
+
+        List<Transport> transports = new ArrayList<>();
+        transports.add(new WebSocketTransport(new StandardWebSocketClient()));
+        transports.add(new RestTemplateXhrTransport());
+        return new SockJsClient(transports);
+    }
+
+    @Bean
+    public WebSocketStompClient webSocketStompClient() {
+        WebSocketStompClient webSocketStompClient = new WebSocketStompClient(webSocketClient());
+        webSocketStompClient.setMessageConverter(new StringMessageConverter());
+        return webSocketStompClient;
+    }
+
+    @Bean
+    public LoadMetrics loadMetrics() {
+        return new LoadMetrics();
+    }
+}
@@ -0,0 +1,173 @@
+package demo.websocket.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadMetrics.class);
+
+    private static final String RTT_PREFIX = "rtt:";
+    private static final String BROADCAST_PREFIX = "server periodic message ";
+    private static final String NODE_PREFIX = " from node ";
+
+    private static final long NANOS_PER_DAY = TimeUnit.DAYS.toNanos(1);
+
+    private final Latency connect = new Latency("connect");
+    private final Latency roundTrip = new Latency("round-trip");
+    private final Latency broadcast = new Latency("broadcast");
+    private final Latency crossNodeBroadcast = new Latency("cross-node broadcast");
+
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder received = new LongAdder();
+    private final LongAdder crossNodeReceived = new LongAdder();
+
+    private final long startTime = System.nanoTime();
+    private long lastReportTime = startTime;
+    private long lastReceived;
+
+    public static String createRequest() {
+        return RTT_PREFIX + System.nanoTime();
+    }
+
+    public void recordConnect(long connectStartTime) {
+        opened.increment();
+        connect.record(System.nanoTime() - connectStartTime);
+    }
+
+    public void recordConnectFailure() {
+        failed.increment();
+    }
+
+    public void recordClose() {
+        closed.increment();
+    }
+
+    public void recordSend() {
+        sent.increment();
+    }
+
+    public void recordReceive(String payload) {
+        recordReceive(payload, null);
+    }
+
+    // responses echo the request, broadcasts carry the server LocalTime (both ends share a clock)
+    // and the node they were published on, which is compared with the node the session is connected to
+    public void recordReceive(String payload, String nodeName) {
+        received.increment();
+
+        int rtt = payload.indexOf(RTT_PREFIX);
+        if (rtt >= 0) {
+            long sendTime = parseLong(payload, rtt + RTT_PREFIX.length());
+            roundTrip.record(System.nanoTime() - sendTime);
+            return;
+        }
+
+        if (payload.startsWith(BROADCAST_PREFIX)) {
+            int end = payload.indexOf(' ', BROADCAST_PREFIX.length());
+            String time = payload.substring(BROADCAST_PREFIX.length(), end < 0 ? payload.length() : end);
+            try {
+                long delay = LocalTime.now().toNanoOfDay() - LocalTime.parse(time).toNanoOfDay();
+                delay = (delay < 0) ? delay + NANOS_PER_DAY : delay;
+                if (nodeName != null && payload.contains(NODE_PREFIX) && !payload.endsWith(NODE_PREFIX + nodeName)) {
+                    crossNodeReceived.increment();
+                    crossNodeBroadcast.record(delay);
+                } else {
+                    broadcast.record(delay);
+                }
+            } catch (DateTimeParseException e) {
+                logger.debug("Unexpected broadcast: {}", payload);
+            }
+        }
+    }
+
+    public synchronized void report() {
+        long now = System.nanoTime();
+        long total = received.sum();
+        double throughput = (total - lastReceived) * 1e9 / (now - lastReportTime);
+        lastReceived = total;
+        lastReportTime = now;
+
+        logger.info("Sessions: {} opened, {} closed, {} failed; messages: {} sent, {} received ({} cross-node), {} msg/s",
+                opened.sum(), closed.sum(), failed.sum(), sent.sum(), total, crossNodeReceived.sum(),
+                String.format("%.1f", throughput));
+        connect.report(false);
+        roundTrip.report(false);
+        broadcast.report(false);
+        crossNodeBroadcast.report(false);
+    }
+
+    public synchronized void reportTotal() {
+        long now = System.nanoTime();
+        double throughput = received.sum() * 1e9 / (now - startTime);
+
+        logger.info("Total: {} sessions opened, {} failed; {} messages sent, {} received ({} cross-node), {} msg/s",
+                opened.sum(), failed.sum(), sent.sum(), received.sum(), crossNodeReceived.sum(),
+                String.format("%.1f", throughput));
+        connect.report(true);
+        roundTrip.report(true);
+        broadcast.report(true);
+        crossNodeBroadcast.report(true);
+    }
+
+    private static long parseLong(String text, int from) {
+        long value = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static class Latency {
+
+        private final String name;
+
+        private final Recorder recorder = new Recorder(3);
+        private final Histogram total = new Histogram(3);
+
+        private Histogram interval;
+
+        Latency(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            recorder.recordValue(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)));
+        }
+
+        void report(boolean cumulative) {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+
+            Histogram histogram = cumulative ? total : interval;
+            if (histogram.getTotalCount() == 0) {
+                return;
+            }
+            logger.info("  {} latency, ms: p50 {}, p99 {}, p999 {}, max {} ({} samples)",
+                    name,
+                    millis(histogram.getValueAtPercentile(50)),
+                    millis(histogram.getValueAtPercentile(99)),
+                    millis(histogram.getValueAtPercentile(99.9)),
+                    millis(histogram.getMaxValue()),
+                    histogram.getTotalCount());
+        }
+
+        private static String millis(long micros) {
+            return String.format("%.3f", micros / 1000.0);
+        }
+    }
+}
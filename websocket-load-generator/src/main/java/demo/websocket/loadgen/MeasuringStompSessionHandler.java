@@ -0,0 +1,54 @@
+package demo.websocket.loadgen;
+
+import demo.websocket.client.example3.ClientStompSessionHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public class MeasuringStompSessionHandler extends ClientStompSessionHandler {
+
+    private final LoadMetrics metrics;
+
+    private final long connectStartTime;
+
+    private final String nodeName;
+
+    private final List<String> subscriptions;
+
+    private final Consumer<StompSession> connectedCallback;
+
+    public MeasuringStompSessionHandler(LoadMetrics metrics, long connectStartTime, String nodeName,
+                                        List<String> subscriptions, Consumer<StompSession> connectedCallback) {
+        this.metrics = metrics;
+        this.connectStartTime = connectStartTime;
+        this.nodeName = nodeName;
+        this.subscriptions = subscriptions;
+        this.connectedCallback = connectedCallback;
+    }
+
+    @Override
+    public void afterConnected(StompSession session, StompHeaders headers) {
+        metrics.recordConnect(connectStartTime);
+        super.afterConnected(session, headers);
+        for (String destination : subscriptions) {
+            session.subscribe(destination, this);
+        }
+        connectedCallback.accept(session);
+    }
+
+    @Override
+    public void handleFrame(StompHeaders headers, Object payload) {
+        super.handleFrame(headers, payload);
+        metrics.recordReceive(String.valueOf(payload), nodeName);
+    }
+
+    @Override
+    public void handleTransportError(StompSession session, Throwable exception) {
+        super.handleTransportError(session, exception);
+        if (!session.isConnected()) {
+            metrics.recordClose();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package demo.websocket.loadgen;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.util.function.Consumer;
+
+public class MeasuringWebSocketHandler extends WebSocketHandlerDecorator {
+
+    private final LoadMetrics metrics;
+
+    private final long connectStartTime;
+
+    private final Consumer<WebSocketSession> connectedCallback;
+
+    public MeasuringWebSocketHandler(WebSocketHandler delegate, LoadMetrics metrics, long connectStartTime,
+                                     Consumer<WebSocketSession> connectedCallback) {
+        super(delegate);
+        this.metrics = metrics;
+        this.connectStartTime = connectStartTime;
+        this.connectedCallback = connectedCallback;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        metrics.recordConnect(connectStartTime);
+        super.afterConnectionEstablished(session);
+        connectedCallback.accept(session);
+    }
+
+    @Override
+    public void handleMessage(WebSocketSession session, WebSocketMessage<?> message) throws Exception {
+        super.handleMessage(session, message);
+        if (message instanceof TextMessage) {
+            metrics.recordReceive(((TextMessage) message).getPayload());
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        metrics.recordClose();
+        super.afterConnectionClosed(session, closeStatus);
+    }
+}
@@ -9,7 +9,12 @@ public class SecWebSocketAccept {
 
     public static void main(String[] args) throws NoSuchAlgorithmException {
         String secWebSocketKey = "7c0RT+Z1px24ypyYfnPNbw==";
-        String secWebSocketAccept = Base64
+        String secWebSocketAccept = compute(secWebSocketKey);
+        System.out.println(secWebSocketAccept); // O1a/o0MeFzoDgn+kCKR91UkYDO4=
+    }
+
+    public static String compute(String secWebSocketKey) throws NoSuchAlgorithmException {
+        return Base64
                 .getEncoder()
                 .encodeToString(
                         MessageDigest
@@ -18,6 +23,5 @@ public class SecWebSocketAccept {
                                         .getBytes(StandardCharsets.UTF_8)
                                 )
                 );
-        System.out.println(secWebSocketAccept); // O1a/o0MeFzoDgn+kCKR91UkYDO4=
     }
 }
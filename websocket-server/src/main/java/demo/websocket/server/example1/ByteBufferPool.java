@@ -0,0 +1,75 @@
+package demo.websocket.server.example1;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ByteBufferPool {
+
+    private static final int MIN_SIZE_SHIFT = 8;
+
+    private final int maxBuffersPerSize;
+
+    private final Queue<ByteBuffer>[] buffers;
+
+    private final AtomicInteger[] pooled;
+
+    @SuppressWarnings("unchecked")
+    public ByteBufferPool(int maxBufferSize, int maxBuffersPerSize) {
+        this.maxBuffersPerSize = maxBuffersPerSize;
+        int sizeClasses = sizeClass(maxBufferSize) + 1;
+        this.buffers = (Queue<ByteBuffer>[]) new Queue<?>[sizeClasses];
+        this.pooled = new AtomicInteger[sizeClasses];
+        for (int i = 0; i < sizeClasses; i++) {
+            buffers[i] = new ConcurrentLinkedQueue<>();
+            pooled[i] = new AtomicInteger();
+        }
+    }
+
+    public ByteBuffer acquire(int capacity) {
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass >= buffers.length) {
+            return ByteBuffer.allocate(capacity);
+        }
+
+        ByteBuffer buffer = buffers[sizeClass].poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(1 << (sizeClass + MIN_SIZE_SHIFT));
+        }
+        pooled[sizeClass].decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            return;
+        }
+
+        int sizeClass = sizeClass(buffer.capacity());
+        if (sizeClass >= buffers.length || buffer.capacity() != 1 << (sizeClass + MIN_SIZE_SHIFT)) {
+            return;
+        }
+        if (pooled[sizeClass].incrementAndGet() > maxBuffersPerSize) {
+            pooled[sizeClass].decrementAndGet();
+            return;
+        }
+        buffers[sizeClass].offer(buffer);
+    }
+
+    public int getPooled() {
+        int total = 0;
+        for (AtomicInteger count : pooled) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    private static int sizeClass(int capacity) {
+        if (capacity <= 1 << MIN_SIZE_SHIFT) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SIZE_SHIFT;
+    }
+}
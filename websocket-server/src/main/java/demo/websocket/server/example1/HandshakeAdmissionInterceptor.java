@@ -0,0 +1,89 @@
+package demo.websocket.server.example1;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HandshakeAdmissionInterceptor implements HandshakeInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HandshakeAdmissionInterceptor.class);
+
+    private final int maxConcurrent;
+    private final Semaphore inFlight;
+
+    private final TokenBucket tokenBucket;
+
+    private final int retryAfter;
+    private final int retryAfterJitter;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejectedConcurrency = new LongAdder();
+    private final LongAdder rejectedRate = new LongAdder();
+
+    public HandshakeAdmissionInterceptor(int maxConcurrent, int permitsPerSecond, int burst,
+                                         int retryAfter, int retryAfterJitter) {
+        this.maxConcurrent = maxConcurrent;
+        this.inFlight = new Semaphore(maxConcurrent);
+        this.tokenBucket = new TokenBucket(permitsPerSecond, burst);
+        this.retryAfter = retryAfter;
+        this.retryAfterJitter = retryAfterJitter;
+    }
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        if (!inFlight.tryAcquire()) {
+            rejectedConcurrency.increment();
+            return reject(response);
+        }
+        if (!tokenBucket.tryAcquire()) {
+            inFlight.release();
+            rejectedRate.increment();
+            return reject(response);
+        }
+        accepted.increment();
+        return true;
+    }
+
+    // called only when beforeHandshake admitted the request
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+        inFlight.release();
+    }
+
+    public long getAccepted() {
+        return accepted.sum();
+    }
+
+    public long getRejectedConcurrency() {
+        return rejectedConcurrency.sum();
+    }
+
+    public long getRejectedRate() {
+        return rejectedRate.sum();
+    }
+
+    public int getInFlight() {
+        return maxConcurrent - inFlight.availablePermits();
+    }
+
+    // clients that honor Retry-After spread their next attempt over [retryAfter, retryAfter + jitter]
+    private boolean reject(ServerHttpResponse response) {
+        int delay = retryAfter + ThreadLocalRandom.current().nextInt(retryAfterJitter + 1);
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(delay));
+        logger.debug("Server rejects handshake, retry after {} s", delay);
+        return false;
+    }
+}
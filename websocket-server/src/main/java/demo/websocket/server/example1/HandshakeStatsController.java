@@ -0,0 +1,27 @@
+package demo.websocket.server.example1;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+public class HandshakeStatsController {
+
+    private final HandshakeAdmissionInterceptor handshakeAdmissionInterceptor;
+
+    public HandshakeStatsController(HandshakeAdmissionInterceptor handshakeAdmissionInterceptor) {
+        this.handshakeAdmissionInterceptor = handshakeAdmissionInterceptor;
+    }
+
+    @GetMapping("/handshake-stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("accepted", handshakeAdmissionInterceptor.getAccepted());
+        stats.put("rejectedConcurrency", handshakeAdmissionInterceptor.getRejectedConcurrency());
+        stats.put("rejectedRate", handshakeAdmissionInterceptor.getRejectedRate());
+        stats.put("inFlight", handshakeAdmissionInterceptor.getInFlight());
+        return stats;
+    }
+}
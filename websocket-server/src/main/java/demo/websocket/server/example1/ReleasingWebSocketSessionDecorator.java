@@ -0,0 +1,31 @@
+package demo.websocket.server.example1;
+
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+
+public class ReleasingWebSocketSessionDecorator extends WebSocketSessionDecorator {
+
+    private final ByteBufferPool bufferPool;
+
+    public ReleasingWebSocketSessionDecorator(WebSocketSession session, ByteBufferPool bufferPool) {
+        super(session);
+        this.bufferPool = bufferPool;
+    }
+
+    // sits below ConcurrentWebSocketSessionDecorator, so a pooled buffer is returned only after the container has written it;
+    // direct payloads are assumed to be pooled and sent to a single session, heap payloads are ignored by the pool
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        try {
+            super.sendMessage(message);
+        } finally {
+            if (message instanceof BinaryMessage) {
+                bufferPool.release(((BinaryMessage) message).getPayload());
+            }
+        }
+    }
+}
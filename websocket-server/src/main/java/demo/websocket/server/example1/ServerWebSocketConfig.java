@@ -1,7 +1,17 @@
 package demo.websocket.server.example1;
 
+import demo.websocket.broadcast.BroadcastConfig;
+import demo.websocket.broadcast.SessionBroadcaster;
+import demo.websocket.broadcast.SessionRegistry;
+import demo.websocket.broadcast.TagsHandshakeInterceptor;
+import demo.websocket.compression.CompressionMetrics;
+import demo.websocket.compression.CompressionMetricsWebSocketHandlerDecorator;
+import demo.websocket.compression.CompressionStatsController;
+import demo.websocket.compression.PerMessageDeflateHandshakeHandler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
@@ -9,15 +19,87 @@ import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry
 
 @Configuration
 @EnableWebSocket
+@Import(BroadcastConfig.class)
 public class ServerWebSocketConfig implements WebSocketConfigurer {
 
+    @Value("${handshake.max-concurrent}")
+    private int handshakeMaxConcurrent;
+
+    @Value("${handshake.rate}")
+    private int handshakeRate;
+
+    @Value("${handshake.burst}")
+    private int handshakeBurst;
+
+    @Value("${handshake.retry-after}")
+    private int handshakeRetryAfter;
+
+    @Value("${handshake.retry-after-jitter}")
+    private int handshakeRetryAfterJitter;
+
+    @Value("${binary.max-buffer-size}")
+    private int binaryMaxBufferSize;
+
+    @Value("${binary.max-buffers-per-size}")
+    private int binaryMaxBuffersPerSize;
+
+    @Value("${compression.enabled}")
+    private boolean compressionEnabled;
+
+    @Value("${compression.server-no-context-takeover}")
+    private boolean compressionServerNoContextTakeover;
+
+    @Value("${compression.client-no-context-takeover}")
+    private boolean compressionClientNoContextTakeover;
+
+    @Value("${compression.sample-rate}")
+    private int compressionSampleRate;
+
+    private final SessionRegistry sessionRegistry;
+
+    private final SessionBroadcaster sessionBroadcaster;
+
+    public ServerWebSocketConfig(SessionRegistry sessionRegistry, SessionBroadcaster sessionBroadcaster) {
+        this.sessionRegistry = sessionRegistry;
+        this.sessionBroadcaster = sessionBroadcaster;
+    }
+
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-        registry.addHandler(webSocketHandler(), "/websocket");
+        registry.addHandler(new CompressionMetricsWebSocketHandlerDecorator(webSocketHandler(), compressionMetrics()), "/websocket")
+                .setHandshakeHandler(perMessageDeflateHandshakeHandler())
+                .addInterceptors(handshakeAdmissionInterceptor(), new TagsHandshakeInterceptor());
     }
 
     @Bean
     public WebSocketHandler webSocketHandler() {
-        return new ServerWebSocketHandler();
+        return new ServerWebSocketHandler(sessionRegistry, sessionBroadcaster, byteBufferPool());
+    }
+
+    @Bean
+    public ByteBufferPool byteBufferPool() {
+        return new ByteBufferPool(binaryMaxBufferSize, binaryMaxBuffersPerSize);
+    }
+
+    @Bean
+    public HandshakeAdmissionInterceptor handshakeAdmissionInterceptor() {
+        return new HandshakeAdmissionInterceptor(handshakeMaxConcurrent, handshakeRate, handshakeBurst,
+                handshakeRetryAfter, handshakeRetryAfterJitter);
+    }
+
+    @Bean
+    public PerMessageDeflateHandshakeHandler perMessageDeflateHandshakeHandler() {
+        return new PerMessageDeflateHandshakeHandler(compressionEnabled, compressionServerNoContextTakeover,
+                compressionClientNoContextTakeover);
+    }
+
+    @Bean
+    public CompressionMetrics compressionMetrics() {
+        return new CompressionMetrics("/websocket", compressionSampleRate);
+    }
+
+    @Bean
+    public CompressionStatsController compressionStatsController() {
+        return new CompressionStatsController(compressionMetrics());
     }
 }
@@ -1,53 +1,68 @@
 package demo.websocket.server.example1;
 
+import demo.websocket.broadcast.SessionBroadcaster;
+import demo.websocket.broadcast.SessionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.SubProtocolCapable;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 import org.springframework.web.util.HtmlUtils;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalTime;
 import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.CopyOnWriteArraySet;
 
-public class ServerWebSocketHandler extends TextWebSocketHandler implements SubProtocolCapable {
+public class ServerWebSocketHandler extends AbstractWebSocketHandler implements SubProtocolCapable {
 
     private static final Logger logger = LoggerFactory.getLogger(ServerWebSocketHandler.class);
 
-    private final Set<WebSocketSession> sessions = new CopyOnWriteArraySet<>();
+    private static final byte[] BINARY_RESPONSE_PREFIX = "response from server to '".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte BINARY_RESPONSE_SUFFIX = '\'';
+
+    private final SessionRegistry sessions;
+
+    private final SessionBroadcaster broadcaster;
+
+    private final ByteBufferPool bufferPool;
+
+    public ServerWebSocketHandler(SessionRegistry sessions, SessionBroadcaster broadcaster, ByteBufferPool bufferPool) {
+        this.sessions = sessions;
+        this.broadcaster = broadcaster;
+        this.bufferPool = bufferPool;
+    }
 
     @Override
     public void afterConnectionEstablished(WebSocketSession session) throws Exception {
         logger.info("Server connection opened");
-        sessions.add(session);
+        WebSocketSession concurrentSession = broadcaster.decorate(new ReleasingWebSocketSessionDecorator(session, bufferPool));
+        sessions.add(concurrentSession);
 
         TextMessage message = new TextMessage("one-time message from server");
         logger.info("Server sends: {}", message);
-        session.sendMessage(message);
+        broadcaster.send(concurrentSession, message);
     }
 
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
         logger.info("Server connection closed: {}", status);
-        sessions.remove(session);
+        sessions.remove(session.getId());
     }
 
     @Scheduled(fixedRate = 10000)
-    void sendPeriodicMessages() throws IOException {
-        for (WebSocketSession session : sessions) {
-            if (session.isOpen()) {
-                String broadcast = "server periodic message " + LocalTime.now();
-                logger.info("Server sends: {}", broadcast);
-                session.sendMessage(new TextMessage(broadcast));
-            }
-        }
+    void sendPeriodicMessages() {
+        String broadcast = "server periodic message " + LocalTime.now();
+        logger.info("Server broadcasts to {} sessions: {}", sessions.size(), broadcast);
+        // encoded once per tick: TextMessage keeps the bytes, so per-session buffer accounting does not re-encode
+        TextMessage message = new TextMessage(broadcast.getBytes(StandardCharsets.UTF_8));
+        broadcaster.broadcast(sessions.getSessions(), message);
     }
 
     @Override
@@ -57,7 +72,20 @@ public class ServerWebSocketHandler extends TextWebSocketHandler implements SubP
 
         String response = String.format("response from server to '%s'", HtmlUtils.htmlEscape(request));
         logger.info("Server sends: {}", response);
-        session.sendMessage(new TextMessage(response));
+        WebSocketSession concurrentSession = sessions.get(session.getId());
+        (concurrentSession != null ? concurrentSession : session).sendMessage(new TextMessage(response));
+    }
+
+    @Override
+    public void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        ByteBuffer request = message.getPayload();
+        logger.info("Server received: {} bytes", request.remaining());
+
+        ByteBuffer response = bufferPool.acquire(BINARY_RESPONSE_PREFIX.length + request.remaining() + 1);
+        response.put(BINARY_RESPONSE_PREFIX).put(request.duplicate()).put(BINARY_RESPONSE_SUFFIX).flip();
+        logger.info("Server sends: {} bytes", response.remaining());
+        WebSocketSession concurrentSession = sessions.get(session.getId());
+        (concurrentSession != null ? concurrentSession : session).sendMessage(new BinaryMessage(response));
     }
 
     @Override
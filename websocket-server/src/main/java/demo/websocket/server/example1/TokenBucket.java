@@ -0,0 +1,32 @@
+package demo.websocket.server.example1;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// lock-free token bucket kept as a single "theoretical arrival time" (GCRA)
+public class TokenBucket {
+
+    private final long interval;
+    private final long tolerance;
+
+    private final AtomicLong arrivalTime = new AtomicLong(System.nanoTime());
+
+    public TokenBucket(int permitsPerSecond, int burst) {
+        this.interval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.tolerance = interval * burst;
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = arrivalTime.get();
+            long next = Math.max(current, now) + interval;
+            if (next - now > tolerance) {
+                return false;
+            }
+            if (arrivalTime.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+}
@@ -4,6 +4,7 @@ function setConnected(connected) {
     $("#connect").prop("disabled", connected);
     $("#disconnect").prop("disabled", !connected);
     $("#send").prop("disabled", !connected);
+    $("#send-binary").prop("disabled", !connected);
 
     if (connected) {
         $("#conversation").show();
@@ -17,6 +18,7 @@ function setConnected(connected) {
 function connect() {
     webSocket = new WebSocket('ws://localhost:8080/websocket',
         'subprotocol.demo.websocket');
+    webSocket.binaryType = 'arraybuffer';
 
     webSocket.onopen = function () {
         setConnected(true);
@@ -27,7 +29,11 @@ function connect() {
     };
 
     webSocket.onmessage = function (event) {
-        log('Client received: ' + event.data);
+        if (event.data instanceof ArrayBuffer) {
+            log('Client received binary: ' + escapeHtml(new TextDecoder().decode(event.data)));
+        } else {
+            log('Client received: ' + event.data);
+        }
     };
 
     webSocket.onerror = function (event) {
@@ -54,6 +60,16 @@ function send() {
     webSocket.send(message);
 }
 
+function sendBinary() {
+    const message = $("#request").val();
+    log('Client sends binary: ' + escapeHtml(message));
+    webSocket.send(new TextEncoder().encode(message));
+}
+
+function escapeHtml(text) {
+    return $("<div>").text(text).html();
+}
+
 function log(message) {
     $("#responses").append("<tr><td>" + message + "</td></tr>");
     console.log(message);
@@ -72,4 +88,7 @@ $(function () {
     $("#send").click(function () {
         send();
     });
+    $("#send-binary").click(function () {
+        sendBinary();
+    });
 });
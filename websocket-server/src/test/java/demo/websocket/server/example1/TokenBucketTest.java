@@ -0,0 +1,67 @@
+package demo.websocket.server.example1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void burstIsAdmittedAndThenLimited() {
+        TokenBucket bucket = new TokenBucket(1, 5);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryAcquire(), "permit " + i);
+        }
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void permitsRefillAtTheRate() throws InterruptedException {
+        // a permit every 10 ms
+        TokenBucket bucket = new TokenBucket(100, 1);
+
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        Thread.sleep(30);
+        assertTrue(bucket.tryAcquire());
+    }
+
+    @Test
+    void concurrentAcquiresDoNotExceedTheBurst() throws InterruptedException {
+        // one permit per second, so at most one more can be refilled while the threads run
+        TokenBucket bucket = new TokenBucket(1, 50);
+        AtomicInteger acquired = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 100; i++) {
+                    if (bucket.tryAcquire()) {
+                        acquired.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertTrue(acquired.get() >= 50 && acquired.get() <= 51, "acquired " + acquired.get());
+    }
+}
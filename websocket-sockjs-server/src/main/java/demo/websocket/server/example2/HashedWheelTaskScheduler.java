@@ -0,0 +1,410 @@
+package demo.websocket.server.example2;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.support.SimpleTriggerContext;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// SockJS sessions cancel and reschedule their heartbeat on every message they send, which costs a heap
+// operation under the lock of a ScheduledThreadPoolExecutor and leaves the cancelled tasks in the heap
+// until they are due. Here scheduling and cancelling only add a timeout to a lock-free queue, the single
+// ticker thread moves them into the doubly-linked bucket of their tick or unlinks them, and the tasks due
+// in a tick are run in one batch per worker thread. Tasks run up to one tick late.
+public class HashedWheelTaskScheduler implements TaskScheduler, DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedWheelTaskScheduler.class);
+
+    private static final int INIT = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final int poolSize;
+
+    private final ExecutorService workers;
+
+    private final Thread ticker;
+
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile boolean stopped;
+
+    private final Queue<Timeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final long startTime = System.nanoTime();
+
+    // read and written by the ticker thread only
+    private long tick;
+
+    public HashedWheelTaskScheduler(long tickMillis, int wheelSize, int poolSize) {
+        if (Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.poolSize = poolSize;
+
+        CustomizableThreadFactory workerThreadFactory = new CustomizableThreadFactory("SockJS-wheel-");
+        workerThreadFactory.setDaemon(true);
+        this.workers = Executors.newFixedThreadPool(poolSize, workerThreadFactory);
+
+        this.ticker = new Thread(this::run, "SockJS-wheel-ticker");
+        this.ticker.setDaemon(true);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        TriggerTimeout timeout = new TriggerTimeout(task, trigger);
+        return timeout.scheduleNext() ? timeout : null;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+        return add(new Timeout(task, 0), toDeadline(startTime));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Date startTime, long period) {
+        return add(new Timeout(task, TimeUnit.MILLISECONDS.toNanos(period)), toDeadline(startTime));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long period) {
+        return scheduleAtFixedRate(task, new Date(), period);
+    }
+
+    // the delay between the end of one run and the start of the next is not tracked more exactly than the
+    // rate, which the tick granularity would blur anyway
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Date startTime, long delay) {
+        return scheduleAtFixedRate(task, startTime, delay);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, long delay) {
+        return scheduleAtFixedRate(task, new Date(), delay);
+    }
+
+    @Override
+    public void destroy() {
+        stopped = true;
+        ticker.interrupt();
+        workers.shutdownNow();
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    private long toDeadline(Date time) {
+        long delayMillis = time.getTime() - System.currentTimeMillis();
+        return System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    private <T extends Timeout> T add(T timeout, long deadline) {
+        if (stopped) {
+            throw new TaskRejectedException("Scheduler is shut down");
+        }
+        if (started.compareAndSet(false, true)) {
+            ticker.start();
+        }
+        timeout.deadline = deadline;
+        scheduledTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        List<Timeout> expired = new ArrayList<>();
+        while (!stopped) {
+            long tickDeadline = tickNanos * (tick + 1);
+            long sleepNanos = tickDeadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return;
+                    }
+                }
+                continue;
+            }
+
+            unlinkCancelled();
+            transferScheduled();
+            wheel[(int) (tick & mask)].expire(expired);
+            tick++;
+            if (!expired.isEmpty()) {
+                fire(expired);
+                expired.clear();
+            }
+        }
+    }
+
+    private void unlinkCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduledTimeouts.poll()) != null) {
+            if (timeout.state.get() == CANCELLED) {
+                continue;
+            }
+            long ticks = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    // the due tasks are split into one batch per worker, so a task that blocks delays only its own batch
+    private void fire(List<Timeout> expired) {
+        int batches = Math.min(poolSize, expired.size());
+        int batchSize = (expired.size() + batches - 1) / batches;
+        for (int from = 0; from < expired.size(); from += batchSize) {
+            List<Timeout> batch = new ArrayList<>(expired.subList(from, Math.min(from + batchSize, expired.size())));
+            try {
+                workers.execute(() -> batch.forEach(Timeout::runTask));
+            } catch (RuntimeException e) {
+                if (!stopped) {
+                    logger.error("Failed to submit {} expired tasks", batch.size(), e);
+                }
+            }
+        }
+    }
+
+    private static class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expire(List<Timeout> expired) {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                // a bucket holds the deadlines before the end of its tick, so the timeouts of this round are due
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.state.compareAndSet(INIT, EXPIRED)) {
+                        expired.add(timeout);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    private class Timeout implements ScheduledFuture<Object> {
+
+        final Runnable task;
+
+        // zero for a task that runs once
+        final long periodNanos;
+
+        final AtomicInteger state = new AtomicInteger(INIT);
+
+        volatile boolean finished;
+
+        // nanoseconds since the start of the scheduler
+        volatile long deadline;
+
+        // linked by the ticker thread only
+        long remainingRounds;
+        Bucket bucket;
+        Timeout prev;
+        Timeout next;
+
+        Timeout(Runnable task, long periodNanos) {
+            this.task = task;
+            this.periodNanos = periodNanos;
+        }
+
+        void runTask() {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                // like the ThreadPoolTaskScheduler, an error does not stop a repeating task
+                logger.error("Unexpected error occurred in scheduled task", e);
+            }
+            // a repeating task cancelled while it runs is not scheduled again
+            if (periodNanos > 0 && !stopped && state.compareAndSet(EXPIRED, INIT)) {
+                add(this, deadline + periodNanos);
+            } else {
+                done();
+            }
+        }
+
+        synchronized void done() {
+            finished = true;
+            notifyAll();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            while (!finished) {
+                int current = state.get();
+                if (current == CANCELLED) {
+                    return false;
+                }
+                if (state.compareAndSet(current, CANCELLED)) {
+                    if (current == INIT) {
+                        cancelledTimeouts.add(this);
+                    }
+                    done();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        @Override
+        public boolean isDone() {
+            return finished;
+        }
+
+        @Override
+        public synchronized Object get() throws InterruptedException {
+            while (!isDone()) {
+                wait();
+            }
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            return null;
+        }
+
+        @Override
+        public synchronized Object get(long timeout, TimeUnit unit) throws InterruptedException, TimeoutException {
+            long end = System.nanoTime() + unit.toNanos(timeout);
+            while (!isDone()) {
+                long remaining = end - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            return null;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - (System.nanoTime() - startTime), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+
+    private class TriggerTimeout extends Timeout {
+
+        private final Trigger trigger;
+
+        private final SimpleTriggerContext triggerContext = new SimpleTriggerContext();
+
+        private volatile Date scheduledExecutionTime;
+
+        TriggerTimeout(Runnable task, Trigger trigger) {
+            super(task, 0);
+            this.trigger = trigger;
+        }
+
+        boolean scheduleNext() {
+            scheduledExecutionTime = trigger.nextExecutionTime(triggerContext);
+            if (scheduledExecutionTime == null) {
+                return false;
+            }
+            add(this, toDeadline(scheduledExecutionTime));
+            return true;
+        }
+
+        @Override
+        void runTask() {
+            Date actualExecutionTime = new Date();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("Unexpected error occurred in scheduled task", e);
+            }
+            triggerContext.update(scheduledExecutionTime, actualExecutionTime, new Date());
+            if (stopped || !state.compareAndSet(EXPIRED, INIT) || !scheduleNext()) {
+                done();
+            }
+        }
+    }
+}
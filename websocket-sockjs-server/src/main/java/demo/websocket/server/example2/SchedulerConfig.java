@@ -0,0 +1,22 @@
+package demo.websocket.server.example2;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+// the @Scheduled methods use this scheduler by its name, whichever scheduler the SockJS service uses
+@Configuration
+public class SchedulerConfig {
+
+    @Bean
+    public TaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+
+        scheduler.setPoolSize(2);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setDaemon(true);
+
+        return scheduler;
+    }
+}
@@ -1,30 +1,105 @@
 package demo.websocket.server.example2;
 
+import demo.websocket.broadcast.BroadcastConfig;
+import demo.websocket.broadcast.SessionBroadcaster;
+import demo.websocket.broadcast.SessionRegistry;
+import demo.websocket.broadcast.TagsHandshakeInterceptor;
+import demo.websocket.compression.CompressionMetrics;
+import demo.websocket.compression.CompressionMetricsWebSocketHandlerDecorator;
+import demo.websocket.compression.CompressionStatsController;
+import demo.websocket.compression.PerMessageDeflateHandshakeHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.SockJsServiceRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 
 @Configuration
 @EnableWebSocket
+@Import(BroadcastConfig.class)
 public class ServerWebSocketSockJsConfig implements WebSocketConfigurer {
 
+	@Value("${compression.enabled}")
+	private boolean compressionEnabled;
+
+	@Value("${compression.server-no-context-takeover}")
+	private boolean compressionServerNoContextTakeover;
+
+	@Value("${compression.client-no-context-takeover}")
+	private boolean compressionClientNoContextTakeover;
+
+	@Value("${compression.sample-rate}")
+	private int compressionSampleRate;
+
+	@Value("${sockjs.hashed-wheel-scheduler.enabled}")
+	private boolean hashedWheelSchedulerEnabled;
+
+	@Value("${sockjs.hashed-wheel-scheduler.tick-duration}")
+	private long hashedWheelSchedulerTickDuration;
+
+	@Value("${sockjs.hashed-wheel-scheduler.wheel-size}")
+	private int hashedWheelSchedulerWheelSize;
+
+	@Value("${sockjs.hashed-wheel-scheduler.pool-size}")
+	private int hashedWheelSchedulerPoolSize;
+
+	private final SessionRegistry sessionRegistry;
+
+	private final SessionBroadcaster sessionBroadcaster;
+
+	public ServerWebSocketSockJsConfig(SessionRegistry sessionRegistry, SessionBroadcaster sessionBroadcaster) {
+		this.sessionRegistry = sessionRegistry;
+		this.sessionBroadcaster = sessionBroadcaster;
+	}
+
 	@Override
 	public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
-		registry.addHandler(webSocketHandler(), "/websocket-sockjs")
+		SockJsServiceRegistration sockJsServiceRegistration = registry.addHandler(new CompressionMetricsWebSocketHandlerDecorator(webSocketHandler(), compressionMetrics()), "/websocket-sockjs")
 				.setAllowedOrigins("*")
+				.setHandshakeHandler(perMessageDeflateHandshakeHandler())
+				.addInterceptors(new TagsHandshakeInterceptor())
 				.withSockJS()
 				.setWebSocketEnabled(true)
 				.setHeartbeatTime(25000)
 				.setDisconnectDelay(5000)
 				.setClientLibraryUrl("/webjars/sockjs-client/1.1.2/sockjs.js")
 				.setSessionCookieNeeded(false);
+		if (hashedWheelSchedulerEnabled) {
+			sockJsServiceRegistration.setTaskScheduler(hashedWheelTaskScheduler());
+		}
+	}
+
+	// only called by registerWebSocketHandlers under the same property
+	@Bean
+	@ConditionalOnProperty(name = "sockjs.hashed-wheel-scheduler.enabled", havingValue = "true")
+	public HashedWheelTaskScheduler hashedWheelTaskScheduler() {
+		return new HashedWheelTaskScheduler(hashedWheelSchedulerTickDuration, hashedWheelSchedulerWheelSize,
+				hashedWheelSchedulerPoolSize);
 	}
 
 	@Bean
 	public WebSocketHandler webSocketHandler() {
-		return new ServerWebSocketHandler();
+		return new ServerWebSocketHandler(sessionRegistry, sessionBroadcaster);
+	}
+
+	@Bean
+	public PerMessageDeflateHandshakeHandler perMessageDeflateHandshakeHandler() {
+		return new PerMessageDeflateHandshakeHandler(compressionEnabled, compressionServerNoContextTakeover,
+				compressionClientNoContextTakeover);
+	}
+
+	@Bean
+	public CompressionMetrics compressionMetrics() {
+		return new CompressionMetrics("/websocket-sockjs", compressionSampleRate);
+	}
+
+	@Bean
+	public CompressionStatsController compressionStatsController() {
+		return new CompressionStatsController(compressionMetrics());
 	}
 }
@@ -0,0 +1,104 @@
+package demo.websocket.server.example2;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HashedWheelTaskSchedulerTest {
+
+    private static final long TICK_MILLIS = 5;
+
+    // 4 ticks of 5 ms, so a delay of 200 ms takes 10 rounds of the wheel
+    private final HashedWheelTaskScheduler scheduler = new HashedWheelTaskScheduler(TICK_MILLIS, 4, 2);
+
+    @AfterEach
+    void destroy() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void wheelSizeMustBeAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new HashedWheelTaskScheduler(TICK_MILLIS, 6, 1));
+    }
+
+    @Test
+    void taskRunsOnceAfterItsDelay() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        long start = System.nanoTime();
+        ScheduledFuture<?> future = scheduler.schedule(runs::incrementAndGet, new Date(System.currentTimeMillis() + 50));
+
+        future.get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 50 - TICK_MILLIS, "ran after " + elapsedMillis + " ms");
+        assertTrue(future.isDone());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void longDelayIsKeptAcrossWheelRounds() throws Exception {
+        long start = System.nanoTime();
+        ScheduledFuture<?> future = scheduler.schedule(() -> {
+        }, new Date(System.currentTimeMillis() + 200));
+
+        future.get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 200 - TICK_MILLIS, "ran after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void cancelledTaskDoesNotRun() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledFuture<?> future = scheduler.schedule(runs::incrementAndGet, new Date(System.currentTimeMillis() + 50));
+
+        assertTrue(future.cancel(false));
+        assertFalse(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(future.isDone());
+        assertThrows(CancellationException.class, future::get);
+
+        // a later task proves the ticker went past the deadline of the cancelled one
+        scheduler.schedule(() -> {
+        }, new Date(System.currentTimeMillis() + 100)).get(5, TimeUnit.SECONDS);
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void fixedRateTaskRepeatsUntilCancelled() throws Exception {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch fiveRuns = new CountDownLatch(5);
+        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(() -> {
+            runs.incrementAndGet();
+            fiveRuns.countDown();
+        }, 20);
+
+        assertTrue(fiveRuns.await(5, TimeUnit.SECONDS));
+        assertTrue(future.cancel(false));
+        int runsWhenCancelled = runs.get();
+
+        Thread.sleep(100);
+        assertTrue(runs.get() <= runsWhenCancelled + 1, "runs after cancel: " + (runs.get() - runsWhenCancelled));
+    }
+
+    @Test
+    void failingFixedRateTaskKeepsRepeating() throws Exception {
+        CountDownLatch threeRuns = new CountDownLatch(3);
+        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(() -> {
+            threeRuns.countDown();
+            throw new IllegalStateException("task failed");
+        }, 10);
+
+        assertTrue(threeRuns.await(5, TimeUnit.SECONDS));
+        future.cancel(false);
+    }
+}
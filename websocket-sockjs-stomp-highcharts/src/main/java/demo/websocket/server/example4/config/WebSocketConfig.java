@@ -1,35 +1,158 @@
 package demo.websocket.server.example4.config;
 
-import demo.websocket.server.example4.websocket.interceptor.LoggingChannelInterceptor;
+import demo.websocket.compression.CompressionMetrics;
+import demo.websocket.compression.CompressionMetricsWebSocketHandlerDecorator;
+import demo.websocket.compression.CompressionStatsController;
+import demo.websocket.compression.PerMessageDeflateHandshakeHandler;
+import demo.websocket.server.example4.websocket.converter.PerformanceBinaryMessageConverter;
+import demo.websocket.server.example4.websocket.interceptor.AcceptHeaderChannelInterceptor;
+import demo.websocket.server.example4.websocket.interceptor.BinaryFramesHandshakeInterceptor;
+import demo.websocket.server.example4.websocket.interceptor.TracingChannelInterceptor;
+import demo.websocket.server.example4.websocket.metrics.HandlerLatencyChannelInterceptor;
+import demo.websocket.stomp.SessionOrderedTaskExecutor;
+import demo.websocket.stomp.TrieSubscriptionRegistryPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.util.List;
+import java.util.Set;
+
+// applied by WebSocketMessageBrokerConfiguration, which takes the place of @EnableWebSocketMessageBroker
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${stomp.virtual-threads}")
+    private boolean virtualThreads;
+
+    @Value("${stomp.conflated-destinations}")
+    private Set<String> conflatedDestinations;
+
+    @Value("${stomp.outbound.session-queue-limit}")
+    private int outboundSessionQueueLimit;
+
+    @Value("${stomp.binary-destinations}")
+    private Set<String> binaryDestinations;
+
+    @Value("${tracing.sample-rate}")
+    private double tracingSampleRate;
+
+    @Value("${tracing.buffer-size}")
+    private int tracingBufferSize;
+
+    @Value("${compression.enabled}")
+    private boolean compressionEnabled;
+
+    @Value("${compression.server-no-context-takeover}")
+    private boolean compressionServerNoContextTakeover;
+
+    @Value("${compression.client-no-context-takeover}")
+    private boolean compressionClientNoContextTakeover;
+
+    @Value("${compression.sample-rate}")
+    private int compressionSampleRate;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         config.enableSimpleBroker("/queue/", "/topic/");
         config.setApplicationDestinationPrefixes("/app");
+        config.configureBrokerChannel().interceptors(brokerTracingChannelInterceptor());
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/performance").withSockJS();
+        // binary STOMP frames need a plain WebSocket, SockJS carries text only
+        registry.addEndpoint("/performance")
+                .setHandshakeHandler(perMessageDeflateHandshakeHandler())
+                .addInterceptors(new BinaryFramesHandshakeInterceptor());
+        registry.addEndpoint("/performance")
+                .setHandshakeHandler(perMessageDeflateHandshakeHandler())
+                .withSockJS();
+    }
+
+    @Override
+    public boolean configureMessageConverters(List<MessageConverter> messageConverters) {
+        messageConverters.add(new PerformanceBinaryMessageConverter());
+        return true;
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.addDecoratorFactory(handler -> new CompressionMetricsWebSocketHandlerDecorator(handler, compressionMetrics()));
     }
 
     @Override
     public void configureClientInboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new LoggingChannelInterceptor());
+        registration.taskExecutor(new SessionOrderedTaskExecutor(virtualThreads))
+                .corePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        registration.interceptors(acceptHeaderChannelInterceptor(), inboundTracingChannelInterceptor(),
+                inboundHandlerLatencyChannelInterceptor());
     }
 
     @Override
     public void configureClientOutboundChannel(ChannelRegistration registration) {
-        registration.interceptors(new LoggingChannelInterceptor());
+        registration.taskExecutor(new SessionOrderedTaskExecutor(virtualThreads, conflatedDestinations, outboundSessionQueueLimit))
+                .corePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+        registration.interceptors(outboundTracingChannelInterceptor(), outboundHandlerLatencyChannelInterceptor());
+    }
+
+    // static, so that the post processor does not create this configuration before the other beans
+    @Bean
+    public static TrieSubscriptionRegistryPostProcessor trieSubscriptionRegistryPostProcessor(
+            @Value("${stomp.subscription-registry.trie}") boolean enabled,
+            @Value("${stomp.subscription-registry.cache-limit}") int cacheLimit) {
+        return new TrieSubscriptionRegistryPostProcessor(enabled, cacheLimit);
+    }
+
+    @Bean
+    public AcceptHeaderChannelInterceptor acceptHeaderChannelInterceptor() {
+        return new AcceptHeaderChannelInterceptor(binaryDestinations);
+    }
+
+    @Bean
+    public TracingChannelInterceptor inboundTracingChannelInterceptor() {
+        return new TracingChannelInterceptor("inbound", tracingSampleRate, tracingBufferSize);
+    }
+
+    @Bean
+    public TracingChannelInterceptor outboundTracingChannelInterceptor() {
+        return new TracingChannelInterceptor("outbound", tracingSampleRate, tracingBufferSize);
+    }
+
+    @Bean
+    public TracingChannelInterceptor brokerTracingChannelInterceptor() {
+        return new TracingChannelInterceptor("broker", tracingSampleRate, tracingBufferSize);
+    }
+
+    @Bean
+    public HandlerLatencyChannelInterceptor inboundHandlerLatencyChannelInterceptor() {
+        return new HandlerLatencyChannelInterceptor("inbound");
+    }
+
+    @Bean
+    public HandlerLatencyChannelInterceptor outboundHandlerLatencyChannelInterceptor() {
+        return new HandlerLatencyChannelInterceptor("outbound");
+    }
+
+    @Bean
+    public PerMessageDeflateHandshakeHandler perMessageDeflateHandshakeHandler() {
+        return new PerMessageDeflateHandshakeHandler(compressionEnabled, compressionServerNoContextTakeover,
+                compressionClientNoContextTakeover);
+    }
+
+    @Bean
+    public CompressionMetrics compressionMetrics() {
+        return new CompressionMetrics("/performance", compressionSampleRate);
+    }
+
+    @Bean
+    public CompressionStatsController compressionStatsController() {
+        return new CompressionStatsController(compressionMetrics());
     }
 }
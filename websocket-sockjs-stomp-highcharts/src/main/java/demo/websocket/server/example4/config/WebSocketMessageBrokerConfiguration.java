@@ -0,0 +1,26 @@
+package demo.websocket.server.example4.config;
+
+import demo.websocket.server.example4.websocket.metrics.MeteredSubProtocolWebSocketHandler;
+import demo.websocket.stomp.SessionOrderedTaskExecutor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.config.annotation.DelegatingWebSocketMessageBrokerConfiguration;
+
+// what @EnableWebSocketMessageBroker imports, with a handler that exposes the sessions and closes the ones
+// whose outbound queue overflows
+@Configuration
+public class WebSocketMessageBrokerConfiguration extends DelegatingWebSocketMessageBrokerConfiguration {
+
+    @Bean
+    @Override
+    public MeteredSubProtocolWebSocketHandler subProtocolWebSocketHandler() {
+        MeteredSubProtocolWebSocketHandler handler =
+                new MeteredSubProtocolWebSocketHandler(clientInboundChannel(), clientOutboundChannel());
+        if (clientOutboundChannelExecutor() instanceof SessionOrderedTaskExecutor) {
+            ((SessionOrderedTaskExecutor) clientOutboundChannelExecutor()).setSessionQueueOverflowHandler(
+                    sessionId -> handler.closeSession(sessionId, CloseStatus.SESSION_NOT_RELIABLE));
+        }
+        return handler;
+    }
+}
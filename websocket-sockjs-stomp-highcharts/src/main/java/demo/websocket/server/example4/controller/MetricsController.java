@@ -0,0 +1,254 @@
+package demo.websocket.server.example4.controller;
+
+import demo.websocket.server.example4.websocket.interceptor.TracingChannelInterceptor;
+import demo.websocket.server.example4.websocket.metrics.HandlerLatencyChannelInterceptor;
+import demo.websocket.server.example4.websocket.metrics.LatencyHistogram;
+import demo.websocket.server.example4.websocket.metrics.MeteredSubProtocolWebSocketHandler;
+import demo.websocket.server.example4.websocket.subscription.SubscriptionIndex;
+import demo.websocket.stomp.SessionOrderedTaskExecutor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+// the same counters as JSON and in the Prometheus text format, every value is read from
+// LongAdders or executor gauges, so a scrape costs little more than formatting
+@RestController
+public class MetricsController {
+
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final TracingChannelInterceptor brokerTracing;
+    private final TracingChannelInterceptor outboundTracing;
+
+    private final List<TracingChannelInterceptor> tracings;
+
+    private final List<HandlerLatencyChannelInterceptor> handlerLatencies;
+
+    private final Map<String, ThreadPoolTaskExecutor> executors = new LinkedHashMap<>();
+
+    private final SessionOrderedTaskExecutor outboundExecutor;
+
+    private final MeteredSubProtocolWebSocketHandler subProtocolWebSocketHandler;
+
+    private final SubscriptionIndex subscriptionIndex;
+
+    public MetricsController(
+            @Qualifier("inboundTracingChannelInterceptor") TracingChannelInterceptor inboundTracing,
+            @Qualifier("outboundTracingChannelInterceptor") TracingChannelInterceptor outboundTracing,
+            @Qualifier("brokerTracingChannelInterceptor") TracingChannelInterceptor brokerTracing,
+            List<HandlerLatencyChannelInterceptor> handlerLatencies,
+            @Qualifier("clientInboundChannelExecutor") TaskExecutor inboundExecutor,
+            @Qualifier("clientOutboundChannelExecutor") TaskExecutor outboundExecutor,
+            MeteredSubProtocolWebSocketHandler subProtocolWebSocketHandler,
+            SubscriptionIndex subscriptionIndex) {
+        this.brokerTracing = brokerTracing;
+        this.outboundTracing = outboundTracing;
+        this.tracings = Arrays.asList(inboundTracing, outboundTracing, brokerTracing);
+        this.handlerLatencies = handlerLatencies;
+        // the channel executors are declared as TaskExecutor but always built as ThreadPoolTaskExecutor
+        this.executors.put("inbound", (ThreadPoolTaskExecutor) inboundExecutor);
+        this.executors.put("outbound", (ThreadPoolTaskExecutor) outboundExecutor);
+        // the outbound backlog of a session is its queue in the session-ordered executor
+        this.outboundExecutor = (SessionOrderedTaskExecutor) outboundExecutor;
+        this.subProtocolWebSocketHandler = subProtocolWebSocketHandler;
+        this.subscriptionIndex = subscriptionIndex;
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+
+        Map<String, Long> published = brokerTracing.getDestinationCounts();
+        Map<String, Long> delivered = outboundTracing.getDestinationCounts();
+        Map<String, Object> destinations = new TreeMap<>();
+        for (String destination : destinations(published, delivered)) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("published", published.getOrDefault(destination, 0L));
+            counts.put("delivered", delivered.getOrDefault(destination, 0L));
+            destinations.put(destination, counts);
+        }
+        stats.put("destinations", destinations);
+
+        Map<String, Object> executorStats = new LinkedHashMap<>();
+        executors.forEach((channel, executor) -> {
+            Map<String, Object> executorStat = new LinkedHashMap<>();
+            executorStat.put("poolSize", executor.getPoolSize());
+            executorStat.put("activeThreads", executor.getActiveCount());
+            executorStat.put("queuedTasks", getQueuedTasks(executor));
+            if (executor instanceof SessionOrderedTaskExecutor) {
+                SessionOrderedTaskExecutor sessionOrderedExecutor = (SessionOrderedTaskExecutor) executor;
+                executorStat.put("sessionQueuedTasks", sessionOrderedExecutor.getSessionQueuedTaskCount());
+                executorStat.put("conflatedTasks", sessionOrderedExecutor.getConflatedTaskCount());
+                executorStat.put("droppedTasks", sessionOrderedExecutor.getDroppedTaskCount());
+            }
+            executorStats.put(channel, executorStat);
+        });
+        stats.put("executors", executorStats);
+
+        Map<String, Object> sessions = new LinkedHashMap<>();
+        sessions.put("open", subProtocolWebSocketHandler.getOpenSessions());
+        sessions.put("slowConsumers", outboundExecutor.getSessionQueueOverflowCount());
+        sessions.put("outboundQueuedTasks", outboundExecutor.getSessionQueueSizes());
+        sessions.put("connected", subscriptionIndex.getConnectedSessions());
+        sessions.put("subscribers", subscriptionIndex.getSubscriberCounts());
+        stats.put("sessions", sessions);
+
+        Map<String, Object> tracing = new LinkedHashMap<>();
+        for (TracingChannelInterceptor channelTracing : tracings) {
+            Map<String, Object> tracingStat = new LinkedHashMap<>();
+            tracingStat.put("sampled", channelTracing.getSampled());
+            tracingStat.put("dropped", channelTracing.getDropped());
+            tracing.put(channelTracing.getChannel(), tracingStat);
+        }
+        stats.put("tracing", tracing);
+
+        Map<String, Object> handlers = new TreeMap<>();
+        for (HandlerLatencyChannelInterceptor handlerLatency : handlerLatencies) {
+            handlerLatency.getHistograms().forEach((handler, histogram) -> {
+                Map<String, Object> histogramStat = new LinkedHashMap<>();
+                histogramStat.put("count", histogram.getCount());
+                histogramStat.put("sumSeconds", histogram.getSumSeconds());
+                Map<String, Long> buckets = new LinkedHashMap<>();
+                for (int i = 0; i < histogram.getBucketCount(); i++) {
+                    buckets.put(bound(histogram, i), histogram.getCumulativeCount(i));
+                }
+                histogramStat.put("buckets", buckets);
+                handlers.put(handlerLatency.getChannel() + "." + handler, histogramStat);
+            });
+        }
+        stats.put("handlers", handlers);
+        return stats;
+    }
+
+    @GetMapping(value = "/stats/prometheus", produces = PROMETHEUS_CONTENT_TYPE)
+    public String getPrometheusStats() {
+        StringBuilder sb = new StringBuilder(4096);
+
+        Map<String, Long> published = brokerTracing.getDestinationCounts();
+        Map<String, Long> delivered = outboundTracing.getDestinationCounts();
+        type(sb, "stomp_destination_published_total", "counter");
+        published.forEach((destination, count) ->
+                sample(sb, "stomp_destination_published_total", "destination", destination, count));
+        type(sb, "stomp_destination_delivered_total", "counter");
+        delivered.forEach((destination, count) ->
+                sample(sb, "stomp_destination_delivered_total", "destination", destination, count));
+
+        type(sb, "stomp_executor_pool_size", "gauge");
+        executors.forEach((channel, executor) ->
+                sample(sb, "stomp_executor_pool_size", "channel", channel, executor.getPoolSize()));
+        type(sb, "stomp_executor_active_threads", "gauge");
+        executors.forEach((channel, executor) ->
+                sample(sb, "stomp_executor_active_threads", "channel", channel, executor.getActiveCount()));
+        type(sb, "stomp_executor_queued_tasks", "gauge");
+        executors.forEach((channel, executor) ->
+                sample(sb, "stomp_executor_queued_tasks", "channel", channel, getQueuedTasks(executor)));
+        type(sb, "stomp_executor_session_queued_tasks", "gauge");
+        executors.forEach((channel, executor) -> {
+            if (executor instanceof SessionOrderedTaskExecutor) {
+                sample(sb, "stomp_executor_session_queued_tasks", "channel", channel,
+                        ((SessionOrderedTaskExecutor) executor).getSessionQueuedTaskCount());
+            }
+        });
+        type(sb, "stomp_executor_conflated_tasks_total", "counter");
+        executors.forEach((channel, executor) -> {
+            if (executor instanceof SessionOrderedTaskExecutor) {
+                sample(sb, "stomp_executor_conflated_tasks_total", "channel", channel,
+                        ((SessionOrderedTaskExecutor) executor).getConflatedTaskCount());
+            }
+        });
+        type(sb, "stomp_executor_dropped_tasks_total", "counter");
+        executors.forEach((channel, executor) -> {
+            if (executor instanceof SessionOrderedTaskExecutor) {
+                sample(sb, "stomp_executor_dropped_tasks_total", "channel", channel,
+                        ((SessionOrderedTaskExecutor) executor).getDroppedTaskCount());
+            }
+        });
+
+        // per-session values would be a label per session, only their sum and maximum are exported
+        Map<String, Integer> queueSizes = outboundExecutor.getSessionQueueSizes();
+        type(sb, "websocket_sessions", "gauge");
+        sample(sb, "websocket_sessions", null, null, subProtocolWebSocketHandler.getOpenSessions());
+        type(sb, "websocket_sessions_backlogged", "gauge");
+        sample(sb, "websocket_sessions_backlogged", null, null, queueSizes.size());
+        type(sb, "websocket_outbound_queued_tasks_sum", "gauge");
+        sample(sb, "websocket_outbound_queued_tasks_sum", null, null,
+                queueSizes.values().stream().mapToLong(Integer::longValue).sum());
+        type(sb, "websocket_outbound_queued_tasks_max", "gauge");
+        sample(sb, "websocket_outbound_queued_tasks_max", null, null,
+                queueSizes.values().stream().mapToLong(Integer::longValue).max().orElse(0));
+        type(sb, "stomp_subscribers", "gauge");
+        subscriptionIndex.getSubscriberCounts().forEach((destination, count) ->
+                sample(sb, "stomp_subscribers", "destination", destination, count));
+        type(sb, "websocket_slow_consumers_total", "counter");
+        sample(sb, "websocket_slow_consumers_total", null, null, outboundExecutor.getSessionQueueOverflowCount());
+
+        type(sb, "stomp_tracing_sampled_total", "counter");
+        tracings.forEach(tracing ->
+                sample(sb, "stomp_tracing_sampled_total", "channel", tracing.getChannel(), tracing.getSampled()));
+        type(sb, "stomp_tracing_dropped_total", "counter");
+        tracings.forEach(tracing ->
+                sample(sb, "stomp_tracing_dropped_total", "channel", tracing.getChannel(), tracing.getDropped()));
+
+        type(sb, "stomp_handler_latency_seconds", "histogram");
+        for (HandlerLatencyChannelInterceptor handlerLatency : handlerLatencies) {
+            String channelLabels = "channel=\"" + handlerLatency.getChannel() + "\",handler=\"";
+            handlerLatency.getHistograms().forEach((handler, histogram) -> {
+                String labels = channelLabels + escape(handler) + '"';
+                for (int i = 0; i < histogram.getBucketCount(); i++) {
+                    sb.append("stomp_handler_latency_seconds_bucket{").append(labels)
+                            .append(",le=\"").append(bound(histogram, i)).append("\"} ")
+                            .append(histogram.getCumulativeCount(i)).append('\n');
+                }
+                long count = histogram.getCount();
+                sb.append("stomp_handler_latency_seconds_bucket{").append(labels).append(",le=\"+Inf\"} ")
+                        .append(count).append('\n');
+                sb.append("stomp_handler_latency_seconds_sum{").append(labels).append("} ")
+                        .append(histogram.getSumSeconds()).append('\n');
+                sb.append("stomp_handler_latency_seconds_count{").append(labels).append("} ")
+                        .append(count).append('\n');
+            });
+        }
+        return sb.toString();
+    }
+
+    private static long getQueuedTasks(ThreadPoolTaskExecutor executor) {
+        return executor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    // 0.00001 rather than 1.0E-5
+    private static String bound(LatencyHistogram histogram, int bucket) {
+        return BigDecimal.valueOf(histogram.getBucketBoundSeconds(bucket)).stripTrailingZeros().toPlainString();
+    }
+
+    private static TreeSet<String> destinations(Map<String, Long> published, Map<String, Long> delivered) {
+        TreeSet<String> destinations = new TreeSet<>(published.keySet());
+        destinations.addAll(delivered.keySet());
+        return destinations;
+    }
+
+    private static void type(StringBuilder sb, String name, String type) {
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String label, String value, long sample) {
+        sb.append(name);
+        if (label != null) {
+            sb.append('{').append(label).append("=\"").append(escape(value)).append("\"}");
+        }
+        sb.append(' ').append(sample).append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -1,20 +1,35 @@
 package demo.websocket.server.example4.controller;
 
 import demo.websocket.server.example4.domain.Performance;
+import demo.websocket.server.example4.domain.PerformanceDelta;
+import demo.websocket.server.example4.domain.PerformanceRange;
+import demo.websocket.server.example4.domain.PerformanceSeries;
+import demo.websocket.server.example4.service.PerformanceDeltaService;
+import demo.websocket.server.example4.service.PerformanceHistoryService;
 import demo.websocket.server.example4.service.PerformanceService;
+import demo.websocket.server.example4.websocket.interceptor.AcceptHeaderChannelInterceptor;
+import demo.websocket.server.example4.websocket.subscription.SubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationListener;
-import org.springframework.messaging.core.MessageSendingOperations;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Controller
@@ -24,13 +39,31 @@ public class PerformanceController implements ApplicationListener<BrokerAvailabi
 
     private final PerformanceService performanceService;
 
-    private final MessageSendingOperations<String> messageSendingOperations;
+    private final PerformanceDeltaService performanceDeltaService;
+
+    private final PerformanceHistoryService performanceHistoryService;
+
+    private final SimpMessageSendingOperations messageSendingOperations;
+
+    private final SubscriptionIndex subscriptionIndex;
+
+    private final long idleSampleInterval;
 
     private final AtomicBoolean brokerAvailable = new AtomicBoolean(false);
 
-    public PerformanceController(PerformanceService performanceService, MessageSendingOperations<String> messageSendingOperations) {
+    private volatile long lastSampleTime;
+
+    public PerformanceController(PerformanceService performanceService, PerformanceDeltaService performanceDeltaService,
+                                 PerformanceHistoryService performanceHistoryService,
+                                 SimpMessageSendingOperations messageSendingOperations,
+                                 SubscriptionIndex subscriptionIndex,
+                                 @Value("${performance.idle-sample-interval}") long idleSampleInterval) {
         this.performanceService = performanceService;
+        this.performanceDeltaService = performanceDeltaService;
+        this.performanceHistoryService = performanceHistoryService;
         this.messageSendingOperations = messageSendingOperations;
+        this.subscriptionIndex = subscriptionIndex;
+        this.idleSampleInterval = idleSampleInterval;
     }
 
     @SubscribeMapping("/names")
@@ -44,10 +77,45 @@ public class PerformanceController implements ApplicationListener<BrokerAvailabi
         );
     }
 
+    // the recent samples a chart is backfilled with, shared by all subscribers until the next sample
+    @SubscribeMapping("/history")
+    public PerformanceSeries getHistory() {
+        return performanceHistoryService.getBackfill();
+    }
+
+    // a longer range for a chart of the given width in pixels, from the rollups that cover it
+    @SubscribeMapping("/history/{seconds}/{width}")
+    public PerformanceRange getHistoryRange(@DestinationVariable long seconds, @DestinationVariable int width) {
+        return performanceHistoryService.getRange(TimeUnit.SECONDS.toMillis(seconds), width);
+    }
+
+    // the keyframe a delta subscriber starts from
+    @SubscribeMapping("/performance/delta")
+    public PerformanceDelta getPerformanceKeyframe() {
+        return performanceDeltaService.keyframe(performanceService::getRecentPerformance);
+    }
+
+    // requests within the staleness window share one sample, the reply goes to the requesting session only,
+    // in the format it subscribed with
     @MessageMapping("/request")
-    @SendTo("/queue/performance")
-    public Performance onDemandPerformance() {
-        return performanceService.getPerformance();
+    public void onDemandPerformance(@Header(SimpMessageHeaderAccessor.SESSION_ID_HEADER) String sessionId) {
+        boolean json = subscriptionIndex.isSubscribed(sessionId, "/user/queue/performance");
+        boolean binary = subscriptionIndex.isSubscribed(sessionId,
+                "/user/queue/performance" + AcceptHeaderChannelInterceptor.BINARY_DESTINATION_SUFFIX);
+        if (!json && !binary) {
+            return;
+        }
+        Performance performance = performanceService.getRecentPerformance();
+        // the session id as user name addresses the session itself, authenticated or not
+        if (json) {
+            messageSendingOperations.convertAndSendToUser(sessionId, "/queue/performance", performance,
+                    headers(sessionId, null));
+        }
+        if (binary) {
+            messageSendingOperations.convertAndSendToUser(sessionId,
+                    "/queue/performance" + AcceptHeaderChannelInterceptor.BINARY_DESTINATION_SUFFIX, performance,
+                    headers(sessionId, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+        }
     }
 
     @Override
@@ -57,10 +125,45 @@ public class PerformanceController implements ApplicationListener<BrokerAvailabi
         logger.info("Broker is available: {}", brokerAvailable.get());
     }
 
-    @Scheduled(fixedDelay = 5000)
+    // samples at the full rate while the topics have subscribers, otherwise only as often as the history needs
+    @Scheduled(fixedDelayString = "${performance.sample-interval}")
     public void periodicPerformance() {
-        if (brokerAvailable.get()) {
-            messageSendingOperations.convertAndSend("/topic/performance", performanceService.getPerformance());
+        boolean broker = brokerAvailable.get();
+        // each format is converted only when it has subscribers
+        boolean json = broker && subscriptionIndex.hasSubscribers("/topic/performance");
+        boolean binary = broker && subscriptionIndex.hasSubscribers(
+                "/topic/performance" + AcceptHeaderChannelInterceptor.BINARY_DESTINATION_SUFFIX);
+        boolean delta = broker && subscriptionIndex.hasSubscribers("/topic/performance/delta");
+        if (!json && !binary && !delta && System.currentTimeMillis() - lastSampleTime < idleSampleInterval) {
+            return;
+        }
+
+        Performance performance = performanceService.getPerformance();
+        lastSampleTime = performance.getTime();
+        performanceHistoryService.add(performance);
+        if (json) {
+            messageSendingOperations.convertAndSend("/topic/performance", performance);
+        }
+        if (binary) {
+            messageSendingOperations.convertAndSend(
+                    "/topic/performance" + AcceptHeaderChannelInterceptor.BINARY_DESTINATION_SUFFIX, performance,
+                    headers(null, MimeTypeUtils.APPLICATION_OCTET_STREAM));
+        }
+        // deltas are relative to the last published snapshot, which is also the keyframe new subscribers get
+        if (delta) {
+            messageSendingOperations.convertAndSend("/topic/performance/delta", performanceDeltaService.next(performance));
+        }
+    }
+
+    private static MessageHeaders headers(String sessionId, MimeType contentType) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        if (sessionId != null) {
+            accessor.setSessionId(sessionId);
+        }
+        if (contentType != null) {
+            accessor.setContentType(contentType);
         }
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
     }
-}
\ No newline at end of file
+}
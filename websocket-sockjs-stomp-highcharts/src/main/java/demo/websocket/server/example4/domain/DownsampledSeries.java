@@ -0,0 +1,34 @@
+package demo.websocket.server.example4.domain;
+
+// one field of a Performance history range, min and max equal avg for raw samples
+public class DownsampledSeries {
+
+    private final long[] time;
+
+    private final double[] min;
+    private final double[] max;
+    private final double[] avg;
+
+    public DownsampledSeries(long[] time, double[] min, double[] max, double[] avg) {
+        this.time = time;
+        this.min = min;
+        this.max = max;
+        this.avg = avg;
+    }
+
+    public long[] getTime() {
+        return time;
+    }
+
+    public double[] getMin() {
+        return min;
+    }
+
+    public double[] getMax() {
+        return max;
+    }
+
+    public double[] getAvg() {
+        return avg;
+    }
+}
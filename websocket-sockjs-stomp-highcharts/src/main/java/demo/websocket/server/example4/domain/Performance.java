@@ -1,5 +1,6 @@
 package demo.websocket.server.example4.domain;
 
+import java.util.Arrays;
 import java.util.StringJoiner;
 
 public class Performance {
@@ -17,6 +18,12 @@ public class Performance {
     private double systemCpuLoad;
     private double processCpuLoad;
 
+    // only sampled from /proc, negative or empty when unavailable
+    private double ioWaitLoad = -1;
+    private double stealLoad = -1;
+
+    private double[] coreCpuLoads = new double[0];
+
     public long getTime() {
         return time;
     }
@@ -81,6 +88,30 @@ public class Performance {
         this.processCpuLoad = processCpuLoad;
     }
 
+    public double getIoWaitLoad() {
+        return ioWaitLoad;
+    }
+
+    public void setIoWaitLoad(double ioWaitLoad) {
+        this.ioWaitLoad = ioWaitLoad;
+    }
+
+    public double getStealLoad() {
+        return stealLoad;
+    }
+
+    public void setStealLoad(double stealLoad) {
+        this.stealLoad = stealLoad;
+    }
+
+    public double[] getCoreCpuLoads() {
+        return coreCpuLoads;
+    }
+
+    public void setCoreCpuLoads(double[] coreCpuLoads) {
+        this.coreCpuLoads = coreCpuLoads;
+    }
+
     @Override
     public String toString() {
         return new StringJoiner(", ", Performance.class.getSimpleName() + "[", "]")
@@ -92,6 +123,9 @@ public class Performance {
                 .add("freePhysicalMemorySize=" + freePhysicalMemorySize)
                 .add("systemCpuLoad=" + systemCpuLoad)
                 .add("processCpuLoad=" + processCpuLoad)
+                .add("ioWaitLoad=" + ioWaitLoad)
+                .add("stealLoad=" + stealLoad)
+                .add("coreCpuLoads=" + Arrays.toString(coreCpuLoads))
                 .toString();
     }
 }
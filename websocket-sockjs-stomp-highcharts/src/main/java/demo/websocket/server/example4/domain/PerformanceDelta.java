@@ -0,0 +1,141 @@
+package demo.websocket.server.example4.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+// fields that did not change since the previous message are null and left out of the JSON
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PerformanceDelta {
+
+    private long sequence;
+    private boolean keyframe;
+
+    private Long time;
+
+    private Long committedVirtualMemorySize;
+
+    private Long totalSwapSpaceSize;
+    private Long freeSwapSpaceSize;
+
+    private Long totalPhysicalMemorySize;
+    private Long freePhysicalMemorySize;
+
+    private Double systemCpuLoad;
+    private Double processCpuLoad;
+
+    private Double ioWaitLoad;
+    private Double stealLoad;
+
+    private double[] coreCpuLoads;
+
+    public static PerformanceDelta keyframe(long sequence, Performance performance) {
+        return delta(sequence, null, performance);
+    }
+
+    public static PerformanceDelta delta(long sequence, Performance previous, Performance current) {
+        PerformanceDelta delta = new PerformanceDelta();
+        delta.sequence = sequence;
+        delta.keyframe = (previous == null);
+        delta.time = current.getTime();
+        delta.committedVirtualMemorySize = changed(previous == null ? null : previous.getCommittedVirtualMemorySize(),
+                current.getCommittedVirtualMemorySize());
+        delta.totalSwapSpaceSize = changed(previous == null ? null : previous.getTotalSwapSpaceSize(),
+                current.getTotalSwapSpaceSize());
+        delta.freeSwapSpaceSize = changed(previous == null ? null : previous.getFreeSwapSpaceSize(),
+                current.getFreeSwapSpaceSize());
+        delta.totalPhysicalMemorySize = changed(previous == null ? null : previous.getTotalPhysicalMemorySize(),
+                current.getTotalPhysicalMemorySize());
+        delta.freePhysicalMemorySize = changed(previous == null ? null : previous.getFreePhysicalMemorySize(),
+                current.getFreePhysicalMemorySize());
+        delta.systemCpuLoad = changed(previous == null ? null : previous.getSystemCpuLoad(),
+                current.getSystemCpuLoad());
+        delta.processCpuLoad = changed(previous == null ? null : previous.getProcessCpuLoad(),
+                current.getProcessCpuLoad());
+        delta.ioWaitLoad = changed(previous == null ? null : previous.getIoWaitLoad(),
+                current.getIoWaitLoad());
+        delta.stealLoad = changed(previous == null ? null : previous.getStealLoad(),
+                current.getStealLoad());
+        // the loads of all cores are sent together when any of them changed
+        delta.coreCpuLoads = (previous != null && Arrays.equals(previous.getCoreCpuLoads(), current.getCoreCpuLoads()))
+                ? null : current.getCoreCpuLoads();
+        return delta;
+    }
+
+    private static <T> T changed(T previous, T current) {
+        return current.equals(previous) ? null : current;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public boolean isKeyframe() {
+        return keyframe;
+    }
+
+    public Long getTime() {
+        return time;
+    }
+
+    public Long getCommittedVirtualMemorySize() {
+        return committedVirtualMemorySize;
+    }
+
+    public Long getTotalSwapSpaceSize() {
+        return totalSwapSpaceSize;
+    }
+
+    public Long getFreeSwapSpaceSize() {
+        return freeSwapSpaceSize;
+    }
+
+    public Long getTotalPhysicalMemorySize() {
+        return totalPhysicalMemorySize;
+    }
+
+    public Long getFreePhysicalMemorySize() {
+        return freePhysicalMemorySize;
+    }
+
+    public Double getSystemCpuLoad() {
+        return systemCpuLoad;
+    }
+
+    public Double getProcessCpuLoad() {
+        return processCpuLoad;
+    }
+
+    public Double getIoWaitLoad() {
+        return ioWaitLoad;
+    }
+
+    public Double getStealLoad() {
+        return stealLoad;
+    }
+
+    public double[] getCoreCpuLoads() {
+        return coreCpuLoads;
+    }
+
+    @Override
+    public String toString() {
+        return new StringJoiner(", ", PerformanceDelta.class.getSimpleName() + "[", "]")
+                .add("sequence=" + sequence)
+                .add("keyframe=" + keyframe)
+                .add("time=" + time)
+                .add("committedVirtualMemorySize=" + committedVirtualMemorySize)
+                .add("totalSwapSpaceSize=" + totalSwapSpaceSize)
+                .add("freeSwapSpaceSize=" + freeSwapSpaceSize)
+                .add("totalPhysicalMemorySize=" + totalPhysicalMemorySize)
+                .add("freePhysicalMemorySize=" + freePhysicalMemorySize)
+                .add("systemCpuLoad=" + systemCpuLoad)
+                .add("processCpuLoad=" + processCpuLoad)
+                .add("ioWaitLoad=" + ioWaitLoad)
+                .add("stealLoad=" + stealLoad)
+                .add("coreCpuLoads=" + Arrays.toString(coreCpuLoads))
+                .toString();
+    }
+}
@@ -0,0 +1,38 @@
+package demo.websocket.server.example4.domain;
+
+import java.util.Map;
+
+// a Performance history range downsampled to at most one point per pixel
+public class PerformanceRange {
+
+    // 0 for raw samples, otherwise the rollup bucket length in milliseconds
+    private final long interval;
+
+    private final long from;
+    private final long to;
+
+    private final Map<String, DownsampledSeries> series;
+
+    public PerformanceRange(long interval, long from, long to, Map<String, DownsampledSeries> series) {
+        this.interval = interval;
+        this.from = from;
+        this.to = to;
+        this.series = series;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public long getFrom() {
+        return from;
+    }
+
+    public long getTo() {
+        return to;
+    }
+
+    public Map<String, DownsampledSeries> getSeries() {
+        return series;
+    }
+}
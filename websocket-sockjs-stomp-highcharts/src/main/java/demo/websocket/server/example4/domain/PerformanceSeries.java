@@ -0,0 +1,65 @@
+package demo.websocket.server.example4.domain;
+
+// Performance samples in columns, oldest first
+public class PerformanceSeries {
+
+    private final long[] time;
+
+    private final long[] committedVirtualMemorySize;
+
+    private final long[] totalSwapSpaceSize;
+    private final long[] freeSwapSpaceSize;
+
+    private final long[] totalPhysicalMemorySize;
+    private final long[] freePhysicalMemorySize;
+
+    private final double[] systemCpuLoad;
+    private final double[] processCpuLoad;
+
+    public PerformanceSeries(int size) {
+        this.time = new long[size];
+        this.committedVirtualMemorySize = new long[size];
+        this.totalSwapSpaceSize = new long[size];
+        this.freeSwapSpaceSize = new long[size];
+        this.totalPhysicalMemorySize = new long[size];
+        this.freePhysicalMemorySize = new long[size];
+        this.systemCpuLoad = new double[size];
+        this.processCpuLoad = new double[size];
+    }
+
+    public int getSize() {
+        return time.length;
+    }
+
+    public long[] getTime() {
+        return time;
+    }
+
+    public long[] getCommittedVirtualMemorySize() {
+        return committedVirtualMemorySize;
+    }
+
+    public long[] getTotalSwapSpaceSize() {
+        return totalSwapSpaceSize;
+    }
+
+    public long[] getFreeSwapSpaceSize() {
+        return freeSwapSpaceSize;
+    }
+
+    public long[] getTotalPhysicalMemorySize() {
+        return totalPhysicalMemorySize;
+    }
+
+    public long[] getFreePhysicalMemorySize() {
+        return freePhysicalMemorySize;
+    }
+
+    public double[] getSystemCpuLoad() {
+        return systemCpuLoad;
+    }
+
+    public double[] getProcessCpuLoad() {
+        return processCpuLoad;
+    }
+}
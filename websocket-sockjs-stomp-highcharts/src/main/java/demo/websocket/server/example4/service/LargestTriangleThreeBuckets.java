@@ -0,0 +1,58 @@
+package demo.websocket.server.example4.service;
+
+// Largest-Triangle-Three-Buckets downsampling, keeps the first and the last points
+// and from every bucket between them the point forming the largest triangle
+// with the previously kept point and the average of the next bucket
+final class LargestTriangleThreeBuckets {
+
+    private LargestTriangleThreeBuckets() {
+    }
+
+    static int[] select(long[] x, double[] y, int threshold) {
+        int length = x.length;
+        if (threshold >= length || threshold < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] selected = new int[threshold];
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        long origin = x[0];
+        int a = 0;
+
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, length);
+            double nextX = 0;
+            double nextY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                nextX += x[i] - origin;
+                nextY += y[i];
+            }
+            nextX /= nextEnd - nextStart;
+            nextY /= nextEnd - nextStart;
+
+            double ax = x[a] - origin;
+            double ay = y[a];
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int next = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((ax - nextX) * (y[i] - ay) - (ax - (x[i] - origin)) * (nextY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            selected[bucket + 1] = next;
+            a = next;
+        }
+
+        selected[threshold - 1] = length - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,37 @@
+package demo.websocket.server.example4.service;
+
+import demo.websocket.server.example4.domain.Performance;
+import demo.websocket.server.example4.domain.PerformanceDelta;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.function.Supplier;
+
+@Service
+public class PerformanceDeltaService {
+
+    private final int keyframeInterval;
+
+    private Performance last;
+
+    private long sequence;
+
+    PerformanceDeltaService(@Value("${performance.delta.keyframe-interval}") int keyframeInterval) {
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    public synchronized PerformanceDelta next(Performance performance) {
+        Performance previous = (sequence % keyframeInterval == 0) ? null : last;
+        PerformanceDelta delta = PerformanceDelta.delta(++sequence, previous, performance);
+        last = performance;
+        return delta;
+    }
+
+    // before the first delta a sample is taken, so that a subscriber always gets a reply to start from
+    public synchronized PerformanceDelta keyframe(Supplier<Performance> sampler) {
+        if (last == null) {
+            last = sampler.get();
+        }
+        return PerformanceDelta.keyframe(sequence, last);
+    }
+}
@@ -0,0 +1,312 @@
+package demo.websocket.server.example4.service;
+
+import demo.websocket.server.example4.domain.DownsampledSeries;
+import demo.websocket.server.example4.domain.Performance;
+import demo.websocket.server.example4.domain.PerformanceRange;
+import demo.websocket.server.example4.domain.PerformanceSeries;
+import demo.websocket.server.example4.store.PerformanceStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class PerformanceHistoryService {
+
+    // the fields kept in rollups, in the order of their columns; the /proc-only loads are not stored and have no history
+    private static final String[] FIELDS = {
+            "committedVirtualMemorySize",
+            "totalSwapSpaceSize",
+            "freeSwapSpaceSize",
+            "totalPhysicalMemorySize",
+            "freePhysicalMemorySize",
+            "systemCpuLoad",
+            "processCpuLoad"
+    };
+
+    private static final int MIN_WIDTH = 3;
+    private static final int MAX_WIDTH = 4096;
+
+    // a tier is skipped once a range holds more points than this per pixel
+    private static final int MAX_POINTS_PER_PIXEL = 4;
+
+    private final PerformanceStore performanceStore;
+
+    private final int capacity;
+
+    private final int backfillSize;
+
+    // ring buffer columns, the next sample is written at position count % capacity
+    private final long[] time;
+
+    private final long[] committedVirtualMemorySize;
+
+    private final long[] totalSwapSpaceSize;
+    private final long[] freeSwapSpaceSize;
+
+    private final long[] totalPhysicalMemorySize;
+    private final long[] freePhysicalMemorySize;
+
+    private final double[] systemCpuLoad;
+    private final double[] processCpuLoad;
+
+    private volatile long count;
+
+    // raw samples first, then rollups from the shortest interval
+    private final List<PerformanceTier> tiers = new ArrayList<>();
+
+    private final List<PerformanceRollup> rollups = new ArrayList<>();
+
+    private final double[] sample = new double[FIELDS.length];
+
+    // rebuilt at most once per added sample, whatever the number of subscribers
+    private volatile Backfill backfill = new Backfill(-1, null);
+
+    PerformanceHistoryService(PerformanceStore performanceStore,
+                              @Value("${performance.history.capacity}") int capacity,
+                              @Value("${performance.history.backfill-size}") int backfillSize,
+                              @Value("${performance.history.rollup-intervals}") long[] rollupIntervals,
+                              @Value("${performance.history.rollup-capacity}") int rollupCapacity) {
+        this.performanceStore = performanceStore;
+        this.capacity = capacity;
+        this.backfillSize = Math.min(backfillSize, capacity);
+        this.time = new long[capacity];
+        this.committedVirtualMemorySize = new long[capacity];
+        this.totalSwapSpaceSize = new long[capacity];
+        this.freeSwapSpaceSize = new long[capacity];
+        this.totalPhysicalMemorySize = new long[capacity];
+        this.freePhysicalMemorySize = new long[capacity];
+        this.systemCpuLoad = new double[capacity];
+        this.processCpuLoad = new double[capacity];
+
+        tiers.add(new RawTier());
+        for (long rollupInterval : rollupIntervals) {
+            PerformanceRollup rollup = new PerformanceRollup(rollupInterval, rollupCapacity, FIELDS.length);
+            rollups.add(rollup);
+            tiers.add(rollup);
+        }
+
+        // the history and the rollups survive a restart
+        performanceStore.scan(Long.MIN_VALUE, Long.MAX_VALUE, record -> add(
+                record.getTime(),
+                record.getCommittedVirtualMemorySize(),
+                record.getTotalSwapSpaceSize(),
+                record.getFreeSwapSpaceSize(),
+                record.getTotalPhysicalMemorySize(),
+                record.getFreePhysicalMemorySize(),
+                record.getSystemCpuLoad(),
+                record.getProcessCpuLoad()));
+    }
+
+    public synchronized void add(Performance performance) {
+        performanceStore.append(performance);
+        add(performance.getTime(),
+                performance.getCommittedVirtualMemorySize(),
+                performance.getTotalSwapSpaceSize(),
+                performance.getFreeSwapSpaceSize(),
+                performance.getTotalPhysicalMemorySize(),
+                performance.getFreePhysicalMemorySize(),
+                performance.getSystemCpuLoad(),
+                performance.getProcessCpuLoad());
+    }
+
+    private void add(long time, long committedVirtualMemorySize, long totalSwapSpaceSize, long freeSwapSpaceSize,
+                     long totalPhysicalMemorySize, long freePhysicalMemorySize, double systemCpuLoad, double processCpuLoad) {
+        int i = (int) (count % capacity);
+        this.time[i] = time;
+        this.committedVirtualMemorySize[i] = committedVirtualMemorySize;
+        this.totalSwapSpaceSize[i] = totalSwapSpaceSize;
+        this.freeSwapSpaceSize[i] = freeSwapSpaceSize;
+        this.totalPhysicalMemorySize[i] = totalPhysicalMemorySize;
+        this.freePhysicalMemorySize[i] = freePhysicalMemorySize;
+        this.systemCpuLoad[i] = systemCpuLoad;
+        this.processCpuLoad[i] = processCpuLoad;
+        count++;
+
+        for (int field = 0; field < FIELDS.length; field++) {
+            sample[field] = value(field, i);
+        }
+        for (PerformanceRollup rollup : rollups) {
+            rollup.add(time, sample);
+        }
+    }
+
+    public PerformanceSeries getBackfill() {
+        Backfill current = backfill;
+        if (current.count == count) {
+            return current.series;
+        }
+        synchronized (this) {
+            if (backfill.count != count) {
+                backfill = new Backfill(count, getLast(backfillSize));
+            }
+            return backfill.series;
+        }
+    }
+
+    public synchronized PerformanceSeries getLast(int size) {
+        int n = (int) Math.min(Math.min(size, count), capacity);
+        PerformanceSeries series = new PerformanceSeries(n);
+        int start = (int) ((count - n) % capacity);
+        int head = Math.min(n, capacity - start);
+        copy(start, series, 0, head);
+        copy(0, series, head, n - head);
+        return series;
+    }
+
+    // the range ending at the latest sample, from the finest tier that covers it without
+    // scanning too many points, downsampled to the given number of points per field
+    public PerformanceRange getRange(long range, int width) {
+        int points = Math.max(MIN_WIDTH, Math.min(width, MAX_WIDTH));
+        long from;
+        long to;
+        long interval;
+        long[] times;
+        double[][] min = new double[FIELDS.length][];
+        double[][] max = new double[FIELDS.length][];
+        double[][] avg = new double[FIELDS.length][];
+
+        synchronized (this) {
+            to = (count > 0) ? time[(int) ((count - 1) % capacity)] : System.currentTimeMillis();
+            from = to - range;
+            PerformanceTier tier = selectTier(from, points);
+            interval = tier.getInterval();
+
+            int start = tier.positionOf(from);
+            int n = tier.size() - start;
+            times = new long[n];
+            for (int k = 0; k < n; k++) {
+                times[k] = tier.time(start + k);
+            }
+            for (int field = 0; field < FIELDS.length; field++) {
+                min[field] = new double[n];
+                max[field] = new double[n];
+                avg[field] = new double[n];
+                for (int k = 0; k < n; k++) {
+                    min[field][k] = tier.min(field, start + k);
+                    max[field][k] = tier.max(field, start + k);
+                    avg[field][k] = tier.avg(field, start + k);
+                }
+            }
+        }
+
+        Map<String, DownsampledSeries> series = new LinkedHashMap<>();
+        for (int field = 0; field < FIELDS.length; field++) {
+            int[] selected = LargestTriangleThreeBuckets.select(times, avg[field], points);
+            long[] selectedTimes = new long[selected.length];
+            double[] selectedMin = new double[selected.length];
+            double[] selectedMax = new double[selected.length];
+            double[] selectedAvg = new double[selected.length];
+            for (int k = 0; k < selected.length; k++) {
+                int j = selected[k];
+                selectedTimes[k] = times[j];
+                selectedMin[k] = min[field][j];
+                selectedMax[k] = max[field][j];
+                selectedAvg[k] = avg[field][j];
+            }
+            series.put(FIELDS[field], new DownsampledSeries(selectedTimes, selectedMin, selectedMax, selectedAvg));
+        }
+        return new PerformanceRange(interval, from, to, series);
+    }
+
+    private PerformanceTier selectTier(long from, int points) {
+        for (PerformanceTier tier : tiers) {
+            if (tier.covers(from) && tier.size() - tier.positionOf(from) <= points * MAX_POINTS_PER_PIXEL) {
+                return tier;
+            }
+        }
+        return tiers.get(tiers.size() - 1);
+    }
+
+    private double value(int field, int i) {
+        switch (field) {
+            case 0:
+                return committedVirtualMemorySize[i];
+            case 1:
+                return totalSwapSpaceSize[i];
+            case 2:
+                return freeSwapSpaceSize[i];
+            case 3:
+                return totalPhysicalMemorySize[i];
+            case 4:
+                return freePhysicalMemorySize[i];
+            case 5:
+                return systemCpuLoad[i];
+            case 6:
+                return processCpuLoad[i];
+            default:
+                throw new IllegalArgumentException("Unknown field: " + field);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private void copy(int from, PerformanceSeries series, int to, int length) {
+        System.arraycopy(time, from, series.getTime(), to, length);
+        System.arraycopy(committedVirtualMemorySize, from, series.getCommittedVirtualMemorySize(), to, length);
+        System.arraycopy(totalSwapSpaceSize, from, series.getTotalSwapSpaceSize(), to, length);
+        System.arraycopy(freeSwapSpaceSize, from, series.getFreeSwapSpaceSize(), to, length);
+        System.arraycopy(totalPhysicalMemorySize, from, series.getTotalPhysicalMemorySize(), to, length);
+        System.arraycopy(freePhysicalMemorySize, from, series.getFreePhysicalMemorySize(), to, length);
+        System.arraycopy(systemCpuLoad, from, series.getSystemCpuLoad(), to, length);
+        System.arraycopy(processCpuLoad, from, series.getProcessCpuLoad(), to, length);
+    }
+
+    // the raw ring buffer seen as a tier, min and max of a sample are the sample itself
+    private class RawTier extends PerformanceTier {
+
+        private RawTier() {
+            super(0);
+        }
+
+        @Override
+        int size() {
+            return (int) Math.min(count, capacity);
+        }
+
+        @Override
+        boolean isWrapped() {
+            return count > capacity;
+        }
+
+        @Override
+        long time(int position) {
+            return time[slot(position)];
+        }
+
+        @Override
+        double min(int field, int position) {
+            return value(field, slot(position));
+        }
+
+        @Override
+        double max(int field, int position) {
+            return value(field, slot(position));
+        }
+
+        @Override
+        double avg(int field, int position) {
+            return value(field, slot(position));
+        }
+
+        private int slot(int position) {
+            return (int) ((count - size() + position) % capacity);
+        }
+    }
+
+    private static class Backfill {
+
+        private final long count;
+        private final PerformanceSeries series;
+
+        private Backfill(long count, PerformanceSeries series) {
+            this.count = count;
+            this.series = series;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package demo.websocket.server.example4.service;
+
+// fixed-interval buckets with min/max/sum per field, updated as samples arrive
+class PerformanceRollup extends PerformanceTier {
+
+    private final int capacity;
+
+    private final long[] time;
+    private final int[] count;
+
+    private final double[][] min;
+    private final double[][] max;
+    private final double[][] sum;
+
+    private long buckets;
+
+    PerformanceRollup(long interval, int capacity, int fields) {
+        super(interval);
+        this.capacity = capacity;
+        this.time = new long[capacity];
+        this.count = new int[capacity];
+        this.min = new double[fields][capacity];
+        this.max = new double[fields][capacity];
+        this.sum = new double[fields][capacity];
+    }
+
+    void add(long sampleTime, double[] values) {
+        long bucketTime = sampleTime - Math.floorMod(sampleTime, getInterval());
+        int i;
+        // a sample from a clock stepped back is folded into the latest bucket
+        if (buckets == 0 || bucketTime > time[slot(buckets - 1)]) {
+            i = slot(buckets++);
+            time[i] = bucketTime;
+            count[i] = 0;
+            for (int field = 0; field < values.length; field++) {
+                min[field][i] = Double.POSITIVE_INFINITY;
+                max[field][i] = Double.NEGATIVE_INFINITY;
+                sum[field][i] = 0;
+            }
+        } else {
+            i = slot(buckets - 1);
+        }
+
+        count[i]++;
+        for (int field = 0; field < values.length; field++) {
+            double value = values[field];
+            min[field][i] = Math.min(min[field][i], value);
+            max[field][i] = Math.max(max[field][i], value);
+            sum[field][i] += value;
+        }
+    }
+
+    @Override
+    int size() {
+        return (int) Math.min(buckets, capacity);
+    }
+
+    @Override
+    boolean isWrapped() {
+        return buckets > capacity;
+    }
+
+    @Override
+    long time(int position) {
+        return time[position(position)];
+    }
+
+    @Override
+    double min(int field, int position) {
+        return min[field][position(position)];
+    }
+
+    @Override
+    double max(int field, int position) {
+        return max[field][position(position)];
+    }
+
+    @Override
+    double avg(int field, int position) {
+        int i = position(position);
+        return sum[field][i] / count[i];
+    }
+
+    private int position(int position) {
+        return slot(buckets - size() + position);
+    }
+
+    private int slot(long bucket) {
+        return (int) (bucket % capacity);
+    }
+}
@@ -2,25 +2,82 @@ package demo.websocket.server.example4.service;
 
 import com.sun.management.OperatingSystemMXBean;
 import demo.websocket.server.example4.domain.Performance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.time.ZonedDateTime;
 
 @Service
-public class PerformanceService {
+public class PerformanceService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceService.class);
 
     private final OperatingSystemMXBean operatingSystemMXBean;
 
-    PerformanceService() {
+    // null when /proc can't be read, e.g. not on Linux
+    private volatile ProcSampler procSampler;
+
+    private final long maxStaleness;
+
+    private volatile Performance recent;
+
+    PerformanceService(@Value("${performance.proc-sampler.enabled}") boolean procSamplerEnabled,
+                       @Value("${performance.recent.max-staleness}") long maxStaleness) {
+        this.maxStaleness = maxStaleness;
         this.operatingSystemMXBean = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        if (procSamplerEnabled) {
+            try {
+                this.procSampler = new ProcSampler();
+            } catch (IOException e) {
+                logger.info("Sampling with OperatingSystemMXBean, /proc is not available: {}", e.toString());
+            }
+        }
+    }
+
+    // the latest sample if it is fresh enough, otherwise a new one shared by all callers waiting for it
+    public Performance getRecentPerformance() {
+        Performance performance = recent;
+        if (isFresh(performance)) {
+            return performance;
+        }
+        synchronized (this) {
+            performance = recent;
+            return isFresh(performance) ? performance : getPerformance();
+        }
+    }
+
+    private boolean isFresh(Performance performance) {
+        return performance != null && System.currentTimeMillis() - performance.getTime() <= maxStaleness;
     }
 
     public Performance getPerformance() {
+        Performance performance = sample();
+        recent = performance;
+        return performance;
+    }
+
+    private Performance sample() {
         Performance performance = new Performance();
 
         performance.setTime(ZonedDateTime.now().toInstant().toEpochMilli());
 
+        ProcSampler sampler = procSampler;
+        if (sampler != null) {
+            try {
+                sampler.sample(performance);
+                return performance;
+            } catch (IOException e) {
+                logger.warn("Sampling with OperatingSystemMXBean from now on, /proc can't be read", e);
+                procSampler = null;
+                close(sampler);
+            }
+        }
+
         performance.setCommittedVirtualMemorySize(operatingSystemMXBean.getCommittedVirtualMemorySize());
 
         performance.setTotalSwapSpaceSize(operatingSystemMXBean.getTotalSwapSpaceSize());
@@ -34,4 +91,21 @@ public class PerformanceService {
 
         return performance;
     }
+
+    @Override
+    public void destroy() {
+        ProcSampler sampler = procSampler;
+        procSampler = null;
+        if (sampler != null) {
+            close(sampler);
+        }
+    }
+
+    private static void close(ProcSampler sampler) {
+        try {
+            sampler.close();
+        } catch (IOException e) {
+            logger.debug("Failed to close the /proc files", e);
+        }
+    }
 }
@@ -0,0 +1,47 @@
+package demo.websocket.server.example4.service;
+
+// a time-ordered ring of samples or buckets, position 0 is the oldest one retained
+abstract class PerformanceTier {
+
+    private final long interval;
+
+    PerformanceTier(long interval) {
+        this.interval = interval;
+    }
+
+    long getInterval() {
+        return interval;
+    }
+
+    abstract int size();
+
+    abstract boolean isWrapped();
+
+    abstract long time(int position);
+
+    abstract double min(int field, int position);
+
+    abstract double max(int field, int position);
+
+    abstract double avg(int field, int position);
+
+    // a tier covers the range if it still retains the range start or has never dropped anything
+    boolean covers(long from) {
+        return !isWrapped() || (size() > 0 && time(0) <= from);
+    }
+
+    // the first position at or after the given time
+    int positionOf(long from) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (time(middle) < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
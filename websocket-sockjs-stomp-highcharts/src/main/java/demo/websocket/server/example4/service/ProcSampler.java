@@ -0,0 +1,234 @@
+package demo.websocket.server.example4.service;
+
+import demo.websocket.server.example4.domain.Performance;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// reads /proc/stat, /proc/meminfo and /proc/self/stat on Linux through channels kept open
+// and one reused buffer, parsing the numbers in place; loads are fractions of the time
+// passed since the previous sample, so the first sample covers the time since boot
+public class ProcSampler implements Closeable {
+
+    private static final Path STAT = Paths.get("/proc/stat");
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final Path SELF_STAT = Paths.get("/proc/self/stat");
+
+    private static final byte[] CPU = {'c', 'p', 'u'};
+    private static final byte[] MEM_TOTAL = "MemTotal:".getBytes();
+    private static final byte[] MEM_FREE = "MemFree:".getBytes();
+    private static final byte[] SWAP_TOTAL = "SwapTotal:".getBytes();
+    private static final byte[] SWAP_FREE = "SwapFree:".getBytes();
+
+    // of /proc/self/stat, counted from 1 as in proc(5)
+    private static final int UTIME_FIELD = 14;
+    private static final int VSIZE_FIELD = 23;
+
+    private final FileChannel stat;
+    private final FileChannel meminfo;
+    private final FileChannel selfStat;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(8192);
+
+    private int position;
+    private int limit;
+
+    private final int cores;
+
+    // index 0 is the line of all CPUs, index i + 1 is core i
+    private final long[] previousTotal;
+    private final long[] previousIdle;
+    private final long[] previousIoWait;
+    private final long[] previousSteal;
+
+    private long previousProcess;
+
+    private final long[] values = new long[8];
+
+    public ProcSampler() throws IOException {
+        this(STAT, MEMINFO, SELF_STAT);
+    }
+
+    ProcSampler(Path stat, Path meminfo, Path selfStat) throws IOException {
+        this.stat = FileChannel.open(stat);
+        this.meminfo = FileChannel.open(meminfo);
+        this.selfStat = FileChannel.open(selfStat);
+        this.cores = countCores();
+        this.previousTotal = new long[cores + 1];
+        this.previousIdle = new long[cores + 1];
+        this.previousIoWait = new long[cores + 1];
+        this.previousSteal = new long[cores + 1];
+    }
+
+    public synchronized void sample(Performance performance) throws IOException {
+        double[] coreCpuLoads = new double[cores];
+        long allTotal = 0;
+
+        read(stat);
+        while (startsWith(CPU)) {
+            int index = (buffer.get(position) == ' ') ? 0 : (int) nextNumber() + 1;
+            for (int i = 0; i < values.length; i++) {
+                values[i] = nextNumber();
+            }
+            nextLine();
+            if (index > cores) {
+                continue;
+            }
+
+            // user nice system idle iowait irq softirq steal, guest time is already in user
+            long total = 0;
+            for (long value : values) {
+                total += value;
+            }
+            long idle = values[3] + values[4];
+            long totalDelta = total - previousTotal[index];
+            double load = fraction(totalDelta - (idle - previousIdle[index]), totalDelta);
+            if (index == 0) {
+                allTotal = totalDelta;
+                performance.setSystemCpuLoad(load);
+                performance.setIoWaitLoad(fraction(values[4] - previousIoWait[index], totalDelta));
+                performance.setStealLoad(fraction(values[7] - previousSteal[index], totalDelta));
+            } else {
+                coreCpuLoads[index - 1] = load;
+            }
+            previousTotal[index] = total;
+            previousIdle[index] = idle;
+            previousIoWait[index] = values[4];
+            previousSteal[index] = values[7];
+        }
+        performance.setCoreCpuLoads(coreCpuLoads);
+
+        read(meminfo);
+        while (position < limit) {
+            if (startsWith(MEM_TOTAL)) {
+                performance.setTotalPhysicalMemorySize(nextNumber() * 1024);
+            } else if (startsWith(MEM_FREE)) {
+                performance.setFreePhysicalMemorySize(nextNumber() * 1024);
+            } else if (startsWith(SWAP_TOTAL)) {
+                performance.setTotalSwapSpaceSize(nextNumber() * 1024);
+            } else if (startsWith(SWAP_FREE)) {
+                performance.setFreeSwapSpaceSize(nextNumber() * 1024);
+            }
+            nextLine();
+        }
+
+        // the command name may contain spaces and parentheses, fields are counted after its last ')'
+        read(selfStat);
+        position = lastIndexOf(')') + 1;
+        long process = 0;
+        for (int field = 3; field <= VSIZE_FIELD; field++) {
+            skipSpaces();
+            if (field == UTIME_FIELD || field == UTIME_FIELD + 1) {
+                process += nextNumber();
+            } else if (field == VSIZE_FIELD) {
+                performance.setCommittedVirtualMemorySize(nextNumber());
+            } else {
+                skipToken();
+            }
+        }
+        performance.setProcessCpuLoad(fraction(process - previousProcess, allTotal));
+        previousProcess = process;
+    }
+
+    @Override
+    public void close() throws IOException {
+        stat.close();
+        meminfo.close();
+        selfStat.close();
+    }
+
+    private int countCores() throws IOException {
+        read(stat);
+        int count = -1;
+        while (startsWith(CPU)) {
+            count++;
+            nextLine();
+        }
+        return Math.max(count, 0);
+    }
+
+    // procfs regenerates a file on every read from offset 0
+    private void read(FileChannel channel) throws IOException {
+        while (true) {
+            buffer.clear();
+            long offset = 0;
+            int read;
+            while ((read = channel.read(buffer, offset)) > 0) {
+                offset += read;
+                if (!buffer.hasRemaining()) {
+                    break;
+                }
+            }
+            if (buffer.hasRemaining()) {
+                position = 0;
+                limit = buffer.position();
+                return;
+            }
+            buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+        }
+    }
+
+    private boolean startsWith(byte[] prefix) {
+        if (limit - position < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(position + i) != prefix[i]) {
+                return false;
+            }
+        }
+        position += prefix.length;
+        return true;
+    }
+
+    private long nextNumber() {
+        while (position < limit && !isDigit(buffer.get(position))) {
+            position++;
+        }
+        long number = 0;
+        while (position < limit && isDigit(buffer.get(position))) {
+            number = number * 10 + (buffer.get(position++) - '0');
+        }
+        return number;
+    }
+
+    private void skipSpaces() {
+        while (position < limit && buffer.get(position) == ' ') {
+            position++;
+        }
+    }
+
+    private void skipToken() {
+        while (position < limit && buffer.get(position) != ' ') {
+            position++;
+        }
+    }
+
+    private void nextLine() {
+        while (position < limit && buffer.get(position) != '\n') {
+            position++;
+        }
+        position++;
+    }
+
+    private int lastIndexOf(char c) {
+        for (int i = limit - 1; i >= 0; i--) {
+            if (buffer.get(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static double fraction(long part, long total) {
+        return (total > 0) ? Math.max(0, Math.min(1, (double) part / total)) : 0;
+    }
+}
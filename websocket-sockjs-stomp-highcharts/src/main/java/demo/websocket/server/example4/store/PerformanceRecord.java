@@ -0,0 +1,49 @@
+package demo.websocket.server.example4.store;
+
+import java.nio.ByteBuffer;
+
+// a view of one stored record that reads its fields straight from the mapped segment,
+// only valid inside the scan callback it was passed to
+public final class PerformanceRecord {
+
+    private ByteBuffer buffer;
+
+    private int offset;
+
+    void wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    public long getTime() {
+        return buffer.getLong(offset);
+    }
+
+    public long getCommittedVirtualMemorySize() {
+        return buffer.getLong(offset + 8);
+    }
+
+    public long getTotalSwapSpaceSize() {
+        return buffer.getLong(offset + 16);
+    }
+
+    public long getFreeSwapSpaceSize() {
+        return buffer.getLong(offset + 24);
+    }
+
+    public long getTotalPhysicalMemorySize() {
+        return buffer.getLong(offset + 32);
+    }
+
+    public long getFreePhysicalMemorySize() {
+        return buffer.getLong(offset + 40);
+    }
+
+    public double getSystemCpuLoad() {
+        return buffer.getDouble(offset + 48);
+    }
+
+    public double getProcessCpuLoad() {
+        return buffer.getDouble(offset + 56);
+    }
+}
@@ -0,0 +1,169 @@
+package demo.websocket.server.example4.store;
+
+import demo.websocket.server.example4.domain.Performance;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+// a preallocated file of fixed-size records mapped into memory, written append-only by one thread;
+// a record is 64 bytes in the basic layout of PerformanceBinaryMessageConverter, the CRC32C of them
+// and a marker written last, so a record torn by a crash fails recovery and ends the segment; the /proc-only
+// loads are live values and are not stored, records keep one fixed size
+class PerformanceSegment {
+
+    static final int DATA_SIZE = 64;
+    static final int RECORD_SIZE = 72;
+
+    private static final int CHECKSUM_OFFSET = 64;
+    private static final int MARKER_OFFSET = 68;
+    private static final int MARKER = 0x50455246;
+
+    private final Path path;
+
+    private final MappedByteBuffer buffer;
+
+    // owned by the writer, positioned over the data of a record to checksum it
+    private final ByteBuffer checksumView;
+
+    private final int capacity;
+
+    private volatile int count;
+
+    private PerformanceSegment(Path path, MappedByteBuffer buffer, int capacity) {
+        this.path = path;
+        this.buffer = buffer;
+        this.checksumView = buffer.duplicate();
+        this.capacity = capacity;
+    }
+
+    static PerformanceSegment create(Path path, int capacity) throws IOException {
+        return new PerformanceSegment(path, map(path, (long) capacity * RECORD_SIZE), capacity);
+    }
+
+    static PerformanceSegment open(Path path, CRC32C crc) throws IOException {
+        int capacity = (int) (Files.size(path) / RECORD_SIZE);
+        PerformanceSegment segment = new PerformanceSegment(path, map(path, (long) capacity * RECORD_SIZE), capacity);
+        segment.recover(crc);
+        return segment;
+    }
+
+    private static MappedByteBuffer map(Path path, long size) throws IOException {
+        // the mapping stays valid after the channel is closed
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    // counts the valid records and clears whatever a crash left after them
+    private void recover(CRC32C crc) {
+        int valid = 0;
+        while (valid < capacity && isValid(valid, crc)) {
+            valid++;
+        }
+        for (int offset = valid * RECORD_SIZE; offset < capacity * RECORD_SIZE; offset += RECORD_SIZE) {
+            if (buffer.getInt(offset + MARKER_OFFSET) != 0) {
+                buffer.putInt(offset + MARKER_OFFSET, 0);
+            }
+        }
+        count = valid;
+    }
+
+    private boolean isValid(int index, CRC32C crc) {
+        int offset = index * RECORD_SIZE;
+        return buffer.getInt(offset + MARKER_OFFSET) == MARKER
+                && buffer.getInt(offset + CHECKSUM_OFFSET) == checksum(offset, crc);
+    }
+
+    // false when the segment is full
+    boolean append(Performance performance, CRC32C crc) {
+        int index = count;
+        if (index == capacity) {
+            return false;
+        }
+
+        int offset = index * RECORD_SIZE;
+        buffer.putLong(offset, performance.getTime());
+        buffer.putLong(offset + 8, performance.getCommittedVirtualMemorySize());
+        buffer.putLong(offset + 16, performance.getTotalSwapSpaceSize());
+        buffer.putLong(offset + 24, performance.getFreeSwapSpaceSize());
+        buffer.putLong(offset + 32, performance.getTotalPhysicalMemorySize());
+        buffer.putLong(offset + 40, performance.getFreePhysicalMemorySize());
+        buffer.putDouble(offset + 48, performance.getSystemCpuLoad());
+        buffer.putDouble(offset + 56, performance.getProcessCpuLoad());
+        buffer.putInt(offset + CHECKSUM_OFFSET, checksum(offset, crc));
+        buffer.putInt(offset + MARKER_OFFSET, MARKER);
+        // readers see the record only after it is complete
+        count = index + 1;
+        return true;
+    }
+
+    private int checksum(int offset, CRC32C crc) {
+        checksumView.limit(offset + DATA_SIZE).position(offset);
+        crc.reset();
+        crc.update(checksumView);
+        return (int) crc.getValue();
+    }
+
+    // visits the records in [from, to), which are in time order as they are appended
+    void scan(long from, long to, PerformanceRecord record, Consumer<PerformanceRecord> consumer) {
+        int size = count;
+        for (int index = positionOf(from, size); index < size; index++) {
+            int offset = index * RECORD_SIZE;
+            if (buffer.getLong(offset) >= to) {
+                break;
+            }
+            record.wrap(buffer, offset);
+            consumer.accept(record);
+        }
+    }
+
+    private int positionOf(long from, int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (buffer.getLong(middle * RECORD_SIZE) < from) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    int size() {
+        return count;
+    }
+
+    boolean isFull() {
+        return count == capacity;
+    }
+
+    long firstTime() {
+        return buffer.getLong(0);
+    }
+
+    long lastTime() {
+        return buffer.getLong((count - 1) * RECORD_SIZE);
+    }
+
+    long bytes() {
+        return (long) capacity * RECORD_SIZE;
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
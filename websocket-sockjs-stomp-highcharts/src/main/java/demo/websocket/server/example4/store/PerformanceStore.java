@@ -0,0 +1,172 @@
+package demo.websocket.server.example4.store;
+
+import demo.websocket.server.example4.domain.Performance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// append-only Performance records in memory-mapped segment files, oldest segments are deleted
+// once they are older than the maximum age or the store is larger than the maximum size
+@Component
+public class PerformanceStore implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PerformanceStore.class);
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final String SEGMENT_PATTERN = "\\d{20}\\" + SEGMENT_SUFFIX;
+
+    private final Path directory;
+
+    private final int segmentRecords;
+
+    private final long maxAge;
+    private final long maxSize;
+
+    private final CRC32C crc = new CRC32C();
+
+    // replaced as a whole on every roll, oldest first, the last one is written to
+    private volatile List<PerformanceSegment> segments;
+
+    private long nextSegment;
+
+    public PerformanceStore(@Value("${performance.store.directory}") Path directory,
+                            @Value("${performance.store.segment-records}") int segmentRecords,
+                            @Value("${performance.store.max-age}") Duration maxAge,
+                            @Value("${performance.store.max-size}") DataSize maxSize) throws IOException {
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.maxAge = maxAge.toMillis();
+        this.maxSize = maxSize.toBytes();
+        open();
+    }
+
+    private synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> paths;
+        try (Stream<Path> stream = Files.list(directory)) {
+            paths = stream.filter(path -> path.getFileName().toString().matches(SEGMENT_PATTERN))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        List<PerformanceSegment> recovered = new ArrayList<>();
+        for (Path path : paths) {
+            recovered.add(PerformanceSegment.open(path, crc));
+            nextSegment = segmentNumber(path) + 1;
+        }
+        segments = Collections.unmodifiableList(recovered);
+        logger.info("Performance store opened: {} segments, {} records in {}", recovered.size(), size(), directory);
+
+        if (recovered.isEmpty() || active().isFull()) {
+            roll();
+        }
+        retain(System.currentTimeMillis());
+    }
+
+    public synchronized void append(Performance performance) {
+        try {
+            if (!active().append(performance, crc)) {
+                roll();
+                active().append(performance, crc);
+                retain(performance.getTime());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // visits the records in [from, to) in time order without copying them out of the segments
+    public void scan(long from, long to, Consumer<PerformanceRecord> consumer) {
+        PerformanceRecord record = new PerformanceRecord();
+        for (PerformanceSegment segment : segments) {
+            if (segment.size() == 0 || segment.lastTime() < from) {
+                continue;
+            }
+            if (segment.firstTime() >= to) {
+                break;
+            }
+            segment.scan(from, to, record, consumer);
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (PerformanceSegment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public int getSegments() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!segments.isEmpty()) {
+            active().force();
+        }
+    }
+
+    private PerformanceSegment active() {
+        return segments.get(segments.size() - 1);
+    }
+
+    private void roll() throws IOException {
+        List<PerformanceSegment> rolled = new ArrayList<>(segments);
+        if (!rolled.isEmpty()) {
+            // a full segment is never written again, flush it once
+            active().force();
+        }
+        Path path = directory.resolve(String.format("%020d%s", nextSegment++, SEGMENT_SUFFIX));
+        rolled.add(PerformanceSegment.create(path, segmentRecords));
+        segments = Collections.unmodifiableList(rolled);
+        logger.debug("Performance store rolled to {}", path);
+    }
+
+    // the active segment is always kept, a scan that still reads a deleted segment keeps its mapping
+    private void retain(long now) throws IOException {
+        List<PerformanceSegment> retained = new ArrayList<>(segments);
+        long bytes = 0;
+        for (PerformanceSegment segment : retained) {
+            bytes += segment.bytes();
+        }
+
+        while (retained.size() > 1) {
+            PerformanceSegment oldest = retained.get(0);
+            boolean expired = oldest.size() == 0 || oldest.lastTime() < now - maxAge;
+            if (!expired && bytes <= maxSize) {
+                break;
+            }
+            retained.remove(0);
+            bytes -= oldest.bytes();
+            Files.deleteIfExists(oldest.getPath());
+            logger.debug("Performance store deleted {}", oldest.getPath());
+        }
+
+        if (retained.size() != segments.size()) {
+            segments = Collections.unmodifiableList(retained);
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,90 @@
+package demo.websocket.server.example4.websocket.converter;
+
+import demo.websocket.server.example4.domain.Performance;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.AbstractMessageConverter;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+
+// eight big-endian 64-bit fields in declaration order: time, committedVirtualMemorySize,
+// totalSwapSpaceSize, freeSwapSpaceSize, totalPhysicalMemorySize, freePhysicalMemorySize, systemCpuLoad, processCpuLoad;
+// samples from /proc extend them with ioWaitLoad, stealLoad and one double per core, the two layouts are told
+// apart by their length
+public class PerformanceBinaryMessageConverter extends AbstractMessageConverter {
+
+    public static final int PERFORMANCE_SIZE = 64;
+
+    public static final int EXTENDED_PERFORMANCE_SIZE = PERFORMANCE_SIZE + 16;
+
+    public PerformanceBinaryMessageConverter() {
+        super(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        // used only when the message asks for application/octet-stream, JSON stays the default
+        setStrictContentTypeMatch(true);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Performance.class == clazz;
+    }
+
+    @Override
+    protected Object convertToInternal(Object payload, MessageHeaders headers, Object conversionHint) {
+        Performance performance = (Performance) payload;
+        boolean extended = performance.getIoWaitLoad() >= 0;
+        double[] coreCpuLoads = performance.getCoreCpuLoads();
+        ByteBuffer buffer = ByteBuffer.allocate(extended
+                ? EXTENDED_PERFORMANCE_SIZE + coreCpuLoads.length * Double.BYTES : PERFORMANCE_SIZE)
+                .putLong(performance.getTime())
+                .putLong(performance.getCommittedVirtualMemorySize())
+                .putLong(performance.getTotalSwapSpaceSize())
+                .putLong(performance.getFreeSwapSpaceSize())
+                .putLong(performance.getTotalPhysicalMemorySize())
+                .putLong(performance.getFreePhysicalMemorySize())
+                .putDouble(performance.getSystemCpuLoad())
+                .putDouble(performance.getProcessCpuLoad());
+        if (extended) {
+            buffer.putDouble(performance.getIoWaitLoad())
+                    .putDouble(performance.getStealLoad());
+            for (double coreCpuLoad : coreCpuLoads) {
+                buffer.putDouble(coreCpuLoad);
+            }
+        }
+        return buffer.array();
+    }
+
+    @Override
+    protected Object convertFromInternal(Message<?> message, Class<?> targetClass, Object conversionHint) {
+        Object payload = message.getPayload();
+        if (!(payload instanceof byte[])) {
+            return null;
+        }
+        int length = ((byte[]) payload).length;
+        boolean extended = length >= EXTENDED_PERFORMANCE_SIZE && (length - EXTENDED_PERFORMANCE_SIZE) % Double.BYTES == 0;
+        if (length != PERFORMANCE_SIZE && !extended) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap((byte[]) payload);
+        Performance performance = new Performance();
+        performance.setTime(buffer.getLong());
+        performance.setCommittedVirtualMemorySize(buffer.getLong());
+        performance.setTotalSwapSpaceSize(buffer.getLong());
+        performance.setFreeSwapSpaceSize(buffer.getLong());
+        performance.setTotalPhysicalMemorySize(buffer.getLong());
+        performance.setFreePhysicalMemorySize(buffer.getLong());
+        performance.setSystemCpuLoad(buffer.getDouble());
+        performance.setProcessCpuLoad(buffer.getDouble());
+        if (extended) {
+            performance.setIoWaitLoad(buffer.getDouble());
+            performance.setStealLoad(buffer.getDouble());
+            double[] coreCpuLoads = new double[buffer.remaining() / Double.BYTES];
+            for (int i = 0; i < coreCpuLoads.length; i++) {
+                coreCpuLoads[i] = buffer.getDouble();
+            }
+            performance.setCoreCpuLoads(coreCpuLoads);
+        }
+        return performance;
+    }
+}
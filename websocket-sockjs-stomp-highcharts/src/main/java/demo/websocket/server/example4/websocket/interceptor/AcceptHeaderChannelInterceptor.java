@@ -0,0 +1,73 @@
+package demo.websocket.server.example4.websocket.interceptor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+// a broker destination carries one payload format, so a SUBSCRIBE that accepts application/octet-stream
+// is moved to the binary variant of the destination, provided the session can receive binary frames
+public class AcceptHeaderChannelInterceptor implements ChannelInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AcceptHeaderChannelInterceptor.class);
+
+    public static final String BINARY_DESTINATION_SUFFIX = ".binary";
+
+    private static final String ACCEPT_HEADER = "accept";
+
+    private final Set<String> binaryDestinations;
+
+    public AcceptHeaderChannelInterceptor(Set<String> binaryDestinations) {
+        this.binaryDestinations = binaryDestinations;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) != SimpMessageType.SUBSCRIBE) {
+            return message;
+        }
+
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(message);
+        String destination = getBrokerDestination(accessor);
+        if (destination.equals(accessor.getDestination())) {
+            return message;
+        }
+
+        logger.debug("Subscription {} moved to {}", accessor.getSubscriptionId(), destination);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    // the destination a SUBSCRIBE ends up with at the broker; the session events see it before the rewrite
+    public String getBrokerDestination(StompHeaderAccessor accessor) {
+        String destination = accessor.getDestination();
+        String accept = accessor.getFirstNativeHeader(ACCEPT_HEADER);
+        if (accept == null || !binaryDestinations.contains(destination) || !acceptsBinary(accept)) {
+            return destination;
+        }
+        Map<String, Object> sessionAttributes = accessor.getSessionAttributes();
+        if (sessionAttributes == null || !Boolean.TRUE.equals(sessionAttributes.get(BinaryFramesHandshakeInterceptor.BINARY_FRAMES_ATTRIBUTE))) {
+            return destination;
+        }
+        return destination + BINARY_DESTINATION_SUFFIX;
+    }
+
+    private static boolean acceptsBinary(String accept) {
+        for (MimeType mimeType : MimeTypeUtils.parseMimeTypes(accept)) {
+            if (MimeTypeUtils.APPLICATION_OCTET_STREAM.equals(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+package demo.websocket.server.example4.websocket.interceptor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// counts messages per destination and logs a sample of them from a background thread;
+// a sampled message only copies a few header values into a bounded queue, formatting happens
+// on the writer thread, and a message that finds the queue full is dropped and counted
+public class TracingChannelInterceptor implements ChannelInterceptor, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingChannelInterceptor.class);
+
+    // the header StompHeaderAccessor keeps the command in, read without wrapping the message
+    private static final String STOMP_COMMAND_HEADER = "stompCommand";
+
+    private static final String USER_DESTINATION_PREFIX = "/user/";
+
+    // destinations beyond this many are counted together, path variables can make them unbounded
+    private static final int MAX_DESTINATIONS = 1000;
+
+    private static final String OTHER_DESTINATIONS = "other";
+
+    private final String channel;
+
+    private final double sampleRate;
+
+    private final boolean tracing;
+
+    private final Map<String, LongAdder> destinationCounters = new ConcurrentHashMap<>();
+
+    private final LongAdder sampled = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private final BlockingQueue<Trace> queue;
+
+    private final Thread writer;
+
+    public TracingChannelInterceptor(String channel, double sampleRate, int bufferSize) {
+        this.channel = channel;
+        this.sampleRate = sampleRate;
+        this.tracing = sampleRate > 0 && logger.isInfoEnabled();
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.writer = new Thread(this::write, "tracing-" + channel);
+        this.writer.setDaemon(true);
+        if (tracing) {
+            this.writer.start();
+        }
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        MessageHeaders headers = message.getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        String counted = getCountedDestination(headers, destination);
+        if (counted != null) {
+            LongAdder counter = destinationCounters.get(counted);
+            if (counter == null) {
+                counter = destinationCounters.computeIfAbsent(
+                        (destinationCounters.size() < MAX_DESTINATIONS) ? counted : OTHER_DESTINATIONS,
+                        key -> new LongAdder());
+            }
+            counter.increment();
+        }
+
+        if (tracing && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            sampled.increment();
+            Object payload = message.getPayload();
+            Trace trace = new Trace(
+                    System.currentTimeMillis(),
+                    headers.get(STOMP_COMMAND_HEADER),
+                    SimpMessageHeaderAccessor.getMessageType(headers),
+                    destination,
+                    SimpMessageHeaderAccessor.getSessionId(headers),
+                    (payload instanceof byte[]) ? ((byte[]) payload).length : -1);
+            if (!queue.offer(trace)) {
+                dropped.increment();
+            }
+        }
+        return message;
+    }
+
+    // a message to a user is counted once, by the destination the user subscribed to, not per session
+    private static String getCountedDestination(MessageHeaders headers, String destination) {
+        if (destination == null) {
+            return null;
+        }
+        // set by UserDestinationMessageHandler on the per-session destination it translates to
+        String originalDestination = SimpMessageHeaderAccessor.getFirstNativeHeader(
+                SimpMessageHeaderAccessor.ORIGINAL_DESTINATION, headers);
+        if (originalDestination != null) {
+            return originalDestination;
+        }
+        if (destination.startsWith(USER_DESTINATION_PREFIX)
+                && SimpMessageHeaderAccessor.getMessageType(headers) == SimpMessageType.MESSAGE) {
+            return null;
+        }
+        return destination;
+    }
+
+    private void write() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Trace trace = queue.take();
+                logger.info("{} {} command={} type={} destination={} session={} size={}",
+                        trace.time, channel, trace.command, trace.type, trace.destination, trace.session, trace.size);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public Map<String, Long> getDestinationCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        destinationCounters.forEach((destination, counter) -> counts.put(destination, counter.sum()));
+        return counts;
+    }
+
+    public long getSampled() {
+        return sampled.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        writer.interrupt();
+    }
+
+    private static class Trace {
+
+        private final long time;
+        private final Object command;
+        private final Object type;
+        private final String destination;
+        private final String session;
+        private final int size;
+
+        private Trace(long time, Object command, Object type, String destination, String session, int size) {
+            this.time = time;
+            this.command = command;
+            this.type = type;
+            this.destination = destination;
+            this.session = session;
+            this.size = size;
+        }
+    }
+}
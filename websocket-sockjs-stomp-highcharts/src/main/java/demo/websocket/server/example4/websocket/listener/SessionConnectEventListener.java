@@ -1,8 +1,10 @@
 package demo.websocket.server.example4.websocket.listener;
 
+import demo.websocket.server.example4.websocket.subscription.SubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectEvent;
 
@@ -11,8 +13,16 @@ public class SessionConnectEventListener implements ApplicationListener<SessionC
 
     private static final Logger logger = LoggerFactory.getLogger(SessionConnectEventListener.class);
 
+    private final SubscriptionIndex subscriptionIndex;
+
+    public SessionConnectEventListener(SubscriptionIndex subscriptionIndex) {
+        this.subscriptionIndex = subscriptionIndex;
+    }
+
     @Override
     public void onApplicationEvent(SessionConnectEvent event) {
         logger.info("Session connects: {}", event);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        subscriptionIndex.connect(accessor.getSessionId());
     }
 }
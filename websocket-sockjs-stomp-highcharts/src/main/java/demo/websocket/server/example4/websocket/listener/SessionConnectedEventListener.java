@@ -1,8 +1,10 @@
 package demo.websocket.server.example4.websocket.listener;
 
+import demo.websocket.server.example4.websocket.subscription.SubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 
@@ -11,8 +13,16 @@ public class SessionConnectedEventListener implements ApplicationListener<Sessio
 
     private static final Logger logger = LoggerFactory.getLogger(SessionConnectedEventListener.class);
 
+    private final SubscriptionIndex subscriptionIndex;
+
+    public SessionConnectedEventListener(SubscriptionIndex subscriptionIndex) {
+        this.subscriptionIndex = subscriptionIndex;
+    }
+
     @Override
     public void onApplicationEvent(SessionConnectedEvent event) {
         logger.info("Session connected: {}", event);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        subscriptionIndex.connected(accessor.getSessionId());
     }
 }
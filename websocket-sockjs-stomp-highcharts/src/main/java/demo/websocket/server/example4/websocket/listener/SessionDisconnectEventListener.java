@@ -1,5 +1,6 @@
 package demo.websocket.server.example4.websocket.listener;
 
+import demo.websocket.server.example4.websocket.subscription.SubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
@@ -11,8 +12,15 @@ public class SessionDisconnectEventListener implements ApplicationListener<Sessi
 
     private static final Logger logger = LoggerFactory.getLogger(SessionDisconnectEventListener.class);
 
+    private final SubscriptionIndex subscriptionIndex;
+
+    public SessionDisconnectEventListener(SubscriptionIndex subscriptionIndex) {
+        this.subscriptionIndex = subscriptionIndex;
+    }
+
     @Override
     public void onApplicationEvent(SessionDisconnectEvent event) {
         logger.info("Session disconnected: {}", event);
+        subscriptionIndex.disconnect(event.getSessionId());
     }
 }
@@ -1,8 +1,11 @@
 package demo.websocket.server.example4.websocket.listener;
 
+import demo.websocket.server.example4.websocket.interceptor.AcceptHeaderChannelInterceptor;
+import demo.websocket.server.example4.websocket.subscription.SubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionSubscribeEvent;
 
@@ -11,8 +14,22 @@ public class SessionSubscribeEventListener implements ApplicationListener<Sessio
 
     private static final Logger logger = LoggerFactory.getLogger(SessionSubscribeEventListener.class);
 
+    private final SubscriptionIndex subscriptionIndex;
+
+    private final AcceptHeaderChannelInterceptor acceptHeaderChannelInterceptor;
+
+    public SessionSubscribeEventListener(SubscriptionIndex subscriptionIndex,
+                                         AcceptHeaderChannelInterceptor acceptHeaderChannelInterceptor) {
+        this.subscriptionIndex = subscriptionIndex;
+        this.acceptHeaderChannelInterceptor = acceptHeaderChannelInterceptor;
+    }
+
     @Override
     public void onApplicationEvent(SessionSubscribeEvent event) {
         logger.info("Session subscribed: {}", event);
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        // binary subscriptions are counted on the binary variant of the destination, as the broker sees them
+        subscriptionIndex.subscribe(accessor.getSessionId(), accessor.getSubscriptionId(),
+                acceptHeaderChannelInterceptor.getBrokerDestination(accessor));
     }
 }
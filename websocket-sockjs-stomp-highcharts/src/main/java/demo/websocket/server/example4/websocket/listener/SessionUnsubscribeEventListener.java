@@ -1,8 +1,10 @@
 package demo.websocket.server.example4.websocket.listener;
 
+import demo.websocket.server.example4.websocket.subscription.SubscriptionIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
@@ -11,8 +13,16 @@ public class SessionUnsubscribeEventListener implements ApplicationListener<Sess
 
     private static final Logger logger = LoggerFactory.getLogger(SessionUnsubscribeEventListener.class);
 
+    private final SubscriptionIndex subscriptionIndex;
+
+    public SessionUnsubscribeEventListener(SubscriptionIndex subscriptionIndex) {
+        this.subscriptionIndex = subscriptionIndex;
+    }
+
     @Override
     public void onApplicationEvent(SessionUnsubscribeEvent event) {
         logger.info("Session unsubscribes: {}", event);
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(event.getMessage());
+        subscriptionIndex.unsubscribe(accessor.getSessionId(), accessor.getSubscriptionId());
     }
 }
@@ -0,0 +1,49 @@
+package demo.websocket.server.example4.websocket.metrics;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// times every message handler of an executor channel, the handlers of a channel are few and fixed
+public class HandlerLatencyChannelInterceptor implements ExecutorChannelInterceptor {
+
+    private final String channel;
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    // handlers of a message run one after another on the same executor thread
+    private final ThreadLocal<long[]> startTime = ThreadLocal.withInitial(() -> new long[1]);
+
+    public HandlerLatencyChannelInterceptor(String channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler handler) {
+        startTime.get()[0] = System.nanoTime();
+        return message;
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        long nanos = System.nanoTime() - startTime.get()[0];
+        String name = handler.getClass().getSimpleName();
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        histogram.record(nanos);
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public Map<String, LatencyHistogram> getHistograms() {
+        return histograms;
+    }
+}
@@ -0,0 +1,68 @@
+package demo.websocket.server.example4.websocket.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// fixed buckets from 10 microseconds to 5 seconds, each a LongAdder so recording never blocks
+public class LatencyHistogram {
+
+    private static final long[] BOUNDS = {
+            TimeUnit.MICROSECONDS.toNanos(10),
+            TimeUnit.MICROSECONDS.toNanos(50),
+            TimeUnit.MICROSECONDS.toNanos(100),
+            TimeUnit.MICROSECONDS.toNanos(500),
+            TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(5),
+            TimeUnit.MILLISECONDS.toNanos(10),
+            TimeUnit.MILLISECONDS.toNanos(50),
+            TimeUnit.MILLISECONDS.toNanos(100),
+            TimeUnit.MILLISECONDS.toNanos(500),
+            TimeUnit.SECONDS.toNanos(1),
+            TimeUnit.SECONDS.toNanos(5)
+    };
+
+    // the last bucket counts everything above the largest bound
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+    private final LongAdder sum = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int i = 0;
+        while (i < BOUNDS.length && nanos > BOUNDS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        sum.add(nanos);
+    }
+
+    public int getBucketCount() {
+        return BOUNDS.length;
+    }
+
+    public double getBucketBoundSeconds(int bucket) {
+        return BOUNDS[bucket] / 1e9;
+    }
+
+    // observations at or below the bound of the bucket, as Prometheus expects
+    public long getCumulativeCount(int bucket) {
+        long count = 0;
+        for (int i = 0; i <= bucket; i++) {
+            count += buckets[i].sum();
+        }
+        return count;
+    }
+
+    public long getCount() {
+        return getCumulativeCount(BOUNDS.length);
+    }
+
+    public double getSumSeconds() {
+        return sum.sum() / 1e9;
+    }
+}
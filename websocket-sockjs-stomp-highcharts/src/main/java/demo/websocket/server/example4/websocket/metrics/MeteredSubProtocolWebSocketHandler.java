@@ -0,0 +1,54 @@
+package demo.websocket.server.example4.websocket.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// keeps the sessions at hand, so that they can be counted and closed by id
+public class MeteredSubProtocolWebSocketHandler extends SubProtocolWebSocketHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(MeteredSubProtocolWebSocketHandler.class);
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    public MeteredSubProtocolWebSocketHandler(MessageChannel clientInboundChannel, SubscribableChannel clientOutboundChannel) {
+        super(clientInboundChannel, clientOutboundChannel);
+    }
+
+    @Override
+    protected WebSocketSession decorateSession(WebSocketSession session) {
+        WebSocketSession decorated = super.decorateSession(session);
+        sessions.put(session.getId(), decorated);
+        return decorated;
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        sessions.remove(session.getId());
+        super.afterConnectionClosed(session, closeStatus);
+    }
+
+    public void closeSession(String sessionId, CloseStatus closeStatus) {
+        WebSocketSession session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close(closeStatus);
+        } catch (IOException e) {
+            logger.debug("Failed to close session {}", sessionId, e);
+        }
+    }
+
+    public int getOpenSessions() {
+        return sessions.size();
+    }
+}
@@ -0,0 +1,100 @@
+package demo.websocket.server.example4.websocket.subscription;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// live sessions and subscriber counts by destination, kept up to date by the session event listeners;
+// destinations are the ones the broker sees, a subscription moved to a binary variant is counted there
+@Component
+public class SubscriptionIndex {
+
+    // session id to its subscriptions by subscription id
+    private final Map<String, SessionSubscriptions> sessions = new ConcurrentHashMap<>();
+
+    // changed only inside the map's atomic operations, a count of 0 removes the destination
+    private final Map<String, Integer> subscriberCounts = new ConcurrentHashMap<>();
+
+    public void connect(String sessionId) {
+        sessions.computeIfAbsent(sessionId, id -> new SessionSubscriptions());
+    }
+
+    // the events of a session may be handled after its disconnect, which must not bring it back
+    public void connected(String sessionId) {
+        sessions.computeIfPresent(sessionId, (id, subscriptions) -> {
+            subscriptions.connected = true;
+            return subscriptions;
+        });
+    }
+
+    // subscribe and unsubscribe hold the lock of the session's entry, so that disconnect sees either none
+    // or all of their changes
+    public void subscribe(String sessionId, String subscriptionId, String destination) {
+        sessions.computeIfPresent(sessionId, (id, subscriptions) -> {
+            String previous = subscriptions.destinations.put(subscriptionId, destination);
+            if (previous != null) {
+                decrement(previous);
+            }
+            subscriberCounts.merge(destination, 1, Integer::sum);
+            return subscriptions;
+        });
+    }
+
+    public void unsubscribe(String sessionId, String subscriptionId) {
+        sessions.computeIfPresent(sessionId, (id, subscriptions) -> {
+            String destination = subscriptions.destinations.remove(subscriptionId);
+            if (destination != null) {
+                decrement(destination);
+            }
+            return subscriptions;
+        });
+    }
+
+    // a session may be reported disconnected twice, by the DISCONNECT frame and by the closed connection
+    public void disconnect(String sessionId) {
+        SessionSubscriptions subscriptions = sessions.remove(sessionId);
+        if (subscriptions != null) {
+            subscriptions.destinations.values().forEach(this::decrement);
+        }
+    }
+
+    private void decrement(String destination) {
+        subscriberCounts.computeIfPresent(destination, (key, count) -> (count > 1) ? count - 1 : null);
+    }
+
+    public int getSubscriberCount(String destination) {
+        return subscriberCounts.getOrDefault(destination, 0);
+    }
+
+    public boolean hasSubscribers(String destination) {
+        return getSubscriberCount(destination) > 0;
+    }
+
+    public boolean isSubscribed(String sessionId, String destination) {
+        SessionSubscriptions subscriptions = sessions.get(sessionId);
+        return subscriptions != null && subscriptions.destinations.containsValue(destination);
+    }
+
+    public Map<String, Integer> getSubscriberCounts() {
+        return new TreeMap<>(subscriberCounts);
+    }
+
+    public int getConnectedSessions() {
+        int count = 0;
+        for (SessionSubscriptions subscriptions : sessions.values()) {
+            if (subscriptions.connected) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static class SessionSubscriptions {
+
+        private volatile boolean connected;
+
+        private final Map<String, String> destinations = new ConcurrentHashMap<>();
+    }
+}
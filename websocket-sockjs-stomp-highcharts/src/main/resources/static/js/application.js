@@ -9,18 +9,73 @@ $(function () {
             console.log('Names: ' + frame);
 
             createChart('performanceChart', names);
-            stomp.subscribe("/topic/performance", function (message) {
-                const performance = JSON.parse(message.body);
-                updateChart(names, performance);
-            });
 
-            stomp.subscribe("/queue/performance", function (message) {
-                const performance = JSON.parse(message.body);
-                updateChart(names, performance);
-            });
+            // the chart is backfilled with recent samples before the live stream starts
+            const history = stomp.subscribe("/app/history", function (message) {
+                history.unsubscribe();
+                backfillChart(names, JSON.parse(message.body));
+
+                // full snapshots are rebuilt from a keyframe and the deltas that follow it
+                let snapshot = null;
+                let keyframeRequested = false;
+
+                function requestKeyframe() {
+                    if (keyframeRequested) {
+                        return;
+                    }
+                    keyframeRequested = true;
+                    const subscription = stomp.subscribe("/app/performance/delta", function (message) {
+                        subscription.unsubscribe();
+                        keyframeRequested = false;
+                        const keyframe = JSON.parse(message.body);
+                        if (snapshot == null || keyframe.sequence > snapshot.sequence) {
+                            snapshot = keyframe;
+                        }
+                    });
+                }
+
+                stomp.subscribe("/topic/performance/delta", function (message) {
+                    const delta = JSON.parse(message.body);
+                    if (delta.keyframe) {
+                        snapshot = delta;
+                    } else if (snapshot != null && delta.sequence === snapshot.sequence + 1) {
+                        snapshot = Object.assign({}, snapshot, delta);
+                    } else {
+                        if (snapshot == null || delta.sequence > snapshot.sequence) {
+                            requestKeyframe();
+                        }
+                        return;
+                    }
+                    updateChart(names, snapshot);
+                });
+                requestKeyframe();
+
+                stomp.subscribe("/user/queue/performance", function (message) {
+                    const performance = JSON.parse(message.body);
+                    updateChart(names, performance);
+                });
+
+                $("#performanceChart").click(function () {
+                    stomp.send("/app/request", {}, {})
+                });
 
-            $("#performanceChart").click(function () {
-                stomp.send("/app/request", {}, {})
+                // longer ranges replace the live chart, downsampled to its width on the server
+                $("#performanceRange").change(function () {
+                    const seconds = $(this).val();
+                    const destination = (seconds > 0)
+                        ? "/app/history/" + seconds + "/" + Math.round(chart.plotWidth)
+                        : "/app/history";
+                    live = false;
+                    const range = stomp.subscribe(destination, function (message) {
+                        range.unsubscribe();
+                        if (seconds > 0) {
+                            rangeChart(names, JSON.parse(message.body));
+                        } else {
+                            backfillChart(names, JSON.parse(message.body));
+                            live = true;
+                        }
+                    });
+                });
             });
         });
     });
@@ -1,4 +1,5 @@
 let chart;
+let live = true;
 
 function createChart(id, names) {
     const series = [];
@@ -37,9 +38,43 @@ function createChart(id, names) {
     });
 }
 
+function backfillChart(names, history) {
+    let i, j;
+    for (i = 0; i < names.length; i++) {
+        const values = history[names[i]];
+        const data = [];
+        for (j = 0; j < history.time.length; j++) {
+            data.push([history.time[j], values[j]]);
+        }
+        chart.series[i].setData(data, false);
+    }
+    chart.redraw();
+}
+
+function rangeChart(names, range) {
+    let i, j;
+    for (i = 0; i < names.length; i++) {
+        const series = range.series[names[i]];
+        const data = [];
+        for (j = 0; j < series.time.length; j++) {
+            data.push([series.time[j], series.avg[j]]);
+        }
+        chart.series[i].setData(data, false);
+    }
+    chart.redraw();
+}
+
 function updateChart(names, performance) {
+    if (!live) {
+        return;
+    }
     const time = performance.time;
-    const shift = chart.series[0].data.length > 60;
+    const data = chart.series[0].data;
+    // a sample can arrive both in the backfill and in the live stream
+    if (data.length > 0 && data[data.length - 1].x >= time) {
+        return;
+    }
+    const shift = data.length > 60;
 
     let i;
     for (i = 0; i < names.length; i++) {
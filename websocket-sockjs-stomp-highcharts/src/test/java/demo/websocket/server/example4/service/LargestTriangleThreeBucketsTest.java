@@ -0,0 +1,65 @@
+package demo.websocket.server.example4.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LargestTriangleThreeBucketsTest {
+
+    @Test
+    void seriesNotAboveTheThresholdIsKept() {
+        long[] x = times(5);
+        double[] y = {1, 2, 3, 4, 5};
+
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, LargestTriangleThreeBuckets.select(x, y, 5));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, LargestTriangleThreeBuckets.select(x, y, 10));
+        assertArrayEquals(new int[]{0, 1, 2, 3, 4}, LargestTriangleThreeBuckets.select(x, y, 2));
+    }
+
+    @Test
+    void oneIncreasingPointIsKeptPerBucket() {
+        int length = 1000;
+        double[] y = new double[length];
+        for (int i = 0; i < length; i++) {
+            y[i] = Math.sin(i / 25.0);
+        }
+
+        int[] selected = LargestTriangleThreeBuckets.select(times(length), y, 50);
+
+        assertEquals(50, selected.length);
+        assertEquals(0, selected[0]);
+        assertEquals(length - 1, selected[49]);
+        double bucketSize = (double) (length - 2) / 48;
+        for (int bucket = 0; bucket < 48; bucket++) {
+            int index = selected[bucket + 1];
+            assertTrue(index > selected[bucket]);
+            assertTrue(index >= (int) (bucket * bucketSize) + 1 && index < (int) ((bucket + 1) * bucketSize) + 1,
+                    "point " + index + " outside bucket " + bucket);
+        }
+    }
+
+    @Test
+    void peaksAndDipsAreKept() {
+        double[] y = new double[100];
+        Arrays.fill(y, 10);
+        y[37] = 100;
+        y[71] = -50;
+
+        int[] selected = LargestTriangleThreeBuckets.select(times(100), y, 10);
+
+        assertTrue(Arrays.stream(selected).anyMatch(index -> index == 37));
+        assertTrue(Arrays.stream(selected).anyMatch(index -> index == 71));
+    }
+
+    private static long[] times(int length) {
+        long[] x = new long[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = 1_600_000_000_000L + i * 1000L;
+        }
+        return x;
+    }
+}
@@ -0,0 +1,126 @@
+package demo.websocket.server.example4.service;
+
+import demo.websocket.server.example4.domain.Performance;
+import demo.websocket.server.example4.domain.PerformanceDelta;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerformanceDeltaServiceTest {
+
+    @Test
+    void deltaCarriesOnlyTheChangedFields() {
+        PerformanceDeltaService service = new PerformanceDeltaService(10);
+
+        PerformanceDelta keyframe = service.next(performance(1000, 0.1));
+        assertTrue(keyframe.isKeyframe());
+        assertEquals(1, keyframe.getSequence());
+        assertEquals(1L << 33, keyframe.getTotalPhysicalMemorySize());
+
+        PerformanceDelta delta = service.next(performance(2000, 0.2));
+        assertFalse(delta.isKeyframe());
+        assertEquals(2, delta.getSequence());
+        assertEquals(2000, delta.getTime());
+        assertEquals(0.2, delta.getSystemCpuLoad());
+        assertNull(delta.getTotalPhysicalMemorySize());
+        assertNull(delta.getCoreCpuLoads());
+    }
+
+    @Test
+    void keyframeIsSentEveryInterval() {
+        PerformanceDeltaService service = new PerformanceDeltaService(3);
+
+        for (int i = 0; i < 7; i++) {
+            PerformanceDelta delta = service.next(performance(i * 1000, i / 10.0));
+            assertEquals(i % 3 == 0, delta.isKeyframe(), "message " + delta.getSequence());
+        }
+    }
+
+    @Test
+    void subscriberRebuildsTheSamplesFromAKeyframeAndDeltas() {
+        PerformanceDeltaService service = new PerformanceDeltaService(100);
+        service.next(performance(1000, 0.1));
+        service.next(performance(2000, 0.2));
+
+        // a subscriber joining now starts from the keyframe of the last sample
+        PerformanceDelta keyframe = service.keyframe(() -> {
+            throw new AssertionError("a sample was already taken");
+        });
+        assertTrue(keyframe.isKeyframe());
+        assertEquals(2, keyframe.getSequence());
+        Performance rebuilt = apply(new Performance(), keyframe);
+        assertEquals(performance(2000, 0.2).toString(), rebuilt.toString());
+
+        long sequence = keyframe.getSequence();
+        for (int i = 3; i < 10; i++) {
+            Performance performance = performance(i * 1000, (i % 4) / 10.0);
+            performance.setCoreCpuLoads(new double[]{i % 2, 0.5});
+            PerformanceDelta delta = service.next(performance);
+            assertEquals(++sequence, delta.getSequence());
+            rebuilt = apply(rebuilt, delta);
+            assertEquals(performance.toString(), rebuilt.toString());
+        }
+    }
+
+    @Test
+    void keyframeBeforeTheFirstSampleTakesOne() {
+        PerformanceDeltaService service = new PerformanceDeltaService(10);
+
+        PerformanceDelta keyframe = service.keyframe(() -> performance(1000, 0.1));
+        assertTrue(keyframe.isKeyframe());
+        assertEquals(0, keyframe.getSequence());
+        assertEquals(0.1, keyframe.getSystemCpuLoad());
+    }
+
+    private static Performance performance(long time, double systemCpuLoad) {
+        Performance performance = new Performance();
+        performance.setTime(time);
+        performance.setCommittedVirtualMemorySize(1L << 30);
+        performance.setTotalSwapSpaceSize(1L << 31);
+        performance.setFreeSwapSpaceSize(1L << 30);
+        performance.setTotalPhysicalMemorySize(1L << 33);
+        performance.setFreePhysicalMemorySize(1L << 32);
+        performance.setSystemCpuLoad(systemCpuLoad);
+        performance.setProcessCpuLoad(0.05);
+        return performance;
+    }
+
+    // what a client does: the fields present in a message replace the ones it has
+    private static Performance apply(Performance performance, PerformanceDelta delta) {
+        performance.setTime(delta.getTime());
+        if (delta.getCommittedVirtualMemorySize() != null) {
+            performance.setCommittedVirtualMemorySize(delta.getCommittedVirtualMemorySize());
+        }
+        if (delta.getTotalSwapSpaceSize() != null) {
+            performance.setTotalSwapSpaceSize(delta.getTotalSwapSpaceSize());
+        }
+        if (delta.getFreeSwapSpaceSize() != null) {
+            performance.setFreeSwapSpaceSize(delta.getFreeSwapSpaceSize());
+        }
+        if (delta.getTotalPhysicalMemorySize() != null) {
+            performance.setTotalPhysicalMemorySize(delta.getTotalPhysicalMemorySize());
+        }
+        if (delta.getFreePhysicalMemorySize() != null) {
+            performance.setFreePhysicalMemorySize(delta.getFreePhysicalMemorySize());
+        }
+        if (delta.getSystemCpuLoad() != null) {
+            performance.setSystemCpuLoad(delta.getSystemCpuLoad());
+        }
+        if (delta.getProcessCpuLoad() != null) {
+            performance.setProcessCpuLoad(delta.getProcessCpuLoad());
+        }
+        if (delta.getIoWaitLoad() != null) {
+            performance.setIoWaitLoad(delta.getIoWaitLoad());
+        }
+        if (delta.getStealLoad() != null) {
+            performance.setStealLoad(delta.getStealLoad());
+        }
+        if (delta.getCoreCpuLoads() != null) {
+            performance.setCoreCpuLoads(delta.getCoreCpuLoads());
+        }
+        return performance;
+    }
+}
@@ -0,0 +1,124 @@
+package demo.websocket.server.example4.service;
+
+import demo.websocket.server.example4.domain.Performance;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// the sampler reads fixtures in the formats of proc(5), rewritten in place between samples
+class ProcSamplerTest {
+
+    private static final double DELTA = 1e-9;
+
+    private static final String MEMINFO = ""
+            + "MemTotal:       16384 kB\n"
+            + "MemFree:         4096 kB\n"
+            + "MemAvailable:    8192 kB\n"
+            + "SwapTotal:       2048 kB\n"
+            + "SwapFree:        1024 kB\n";
+
+    @TempDir
+    Path directory;
+
+    private Path stat;
+    private Path meminfo;
+    private Path selfStat;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        stat = directory.resolve("stat");
+        meminfo = directory.resolve("meminfo");
+        selfStat = directory.resolve("self-stat");
+        Files.writeString(meminfo, MEMINFO);
+    }
+
+    @Test
+    void loadsAreFractionsOfTheTimeSinceThePreviousSample() throws IOException {
+        Files.writeString(stat, ""
+                + "cpu  100 0 100 700 50 0 0 50 0 0\n"
+                + "cpu0 50 0 50 350 25 0 0 25 0 0\n"
+                + "cpu1 50 0 50 350 25 0 0 25 0 0\n"
+                + "intr 12345 0 0\n"
+                + "ctxt 67890\n");
+        Files.writeString(selfStat, selfStat(30, 20));
+
+        try (ProcSampler sampler = new ProcSampler(stat, meminfo, selfStat)) {
+            Performance first = new Performance();
+            sampler.sample(first);
+
+            // the first sample covers the time since boot
+            assertEquals(0.25, first.getSystemCpuLoad(), DELTA);
+            assertEquals(0.05, first.getIoWaitLoad(), DELTA);
+            assertEquals(0.05, first.getStealLoad(), DELTA);
+            assertArrayEquals(new double[]{0.25, 0.25}, first.getCoreCpuLoads(), DELTA);
+            assertEquals(0.05, first.getProcessCpuLoad(), DELTA);
+
+            Files.writeString(stat, ""
+                    + "cpu  200 0 200 1300 100 0 0 200 0 0\n"
+                    + "cpu0 150 0 100 600 50 0 0 100 0 0\n"
+                    + "cpu1 50 0 100 700 50 0 0 100 0 0\n"
+                    + "intr 23456 0 0\n");
+            Files.writeString(selfStat, selfStat(130, 70));
+
+            Performance second = new Performance();
+            sampler.sample(second);
+
+            assertEquals(0.35, second.getSystemCpuLoad(), DELTA);
+            assertEquals(0.05, second.getIoWaitLoad(), DELTA);
+            assertEquals(0.15, second.getStealLoad(), DELTA);
+            assertArrayEquals(new double[]{0.45, 0.25}, second.getCoreCpuLoads(), DELTA);
+            assertEquals(0.15, second.getProcessCpuLoad(), DELTA);
+        }
+    }
+
+    @Test
+    void memoryIsReadInBytes() throws IOException {
+        Files.writeString(stat, "cpu  1 0 1 8 0 0 0 0 0 0\ncpu0 1 0 1 8 0 0 0 0 0 0\n");
+        Files.writeString(selfStat, selfStat(0, 0));
+
+        try (ProcSampler sampler = new ProcSampler(stat, meminfo, selfStat)) {
+            Performance performance = new Performance();
+            sampler.sample(performance);
+
+            assertEquals(16384 * 1024L, performance.getTotalPhysicalMemorySize());
+            assertEquals(4096 * 1024L, performance.getFreePhysicalMemorySize());
+            assertEquals(2048 * 1024L, performance.getTotalSwapSpaceSize());
+            assertEquals(1024 * 1024L, performance.getFreeSwapSpaceSize());
+            // the command name with spaces and parentheses does not shift the fields after it
+            assertEquals(987654321L, performance.getCommittedVirtualMemorySize());
+        }
+    }
+
+    @Test
+    void fileLargerThanTheBufferIsReadWhole() throws IOException {
+        int cores = 512;
+        StringBuilder lines = new StringBuilder("cpu  512 0 512 2048 0 0 0 0 0 0\n");
+        for (int core = 0; core < cores; core++) {
+            lines.append("cpu").append(core).append(" 1 0 1 4 0 0 0 0 0 0\n");
+        }
+        Files.writeString(stat, lines);
+        Files.writeString(selfStat, selfStat(0, 0));
+
+        try (ProcSampler sampler = new ProcSampler(stat, meminfo, selfStat)) {
+            Performance performance = new Performance();
+            sampler.sample(performance);
+
+            assertEquals(cores, performance.getCoreCpuLoads().length);
+            assertEquals(1.0 / 3, performance.getCoreCpuLoads()[cores - 1], DELTA);
+            assertEquals(1.0 / 3, performance.getSystemCpuLoad(), DELTA);
+        }
+    }
+
+    // utime and stime are fields 14 and 15, vsize is field 23
+    private static String selfStat(long utime, long stime) {
+        return "1234 (java (test) x) S 1 1234 1234 0 -1 4194560 1000 0 0 0 "
+                + utime + " " + stime + " 0 0 20 0 40 0 12345 987654321 5000 18446744073709551615\n";
+    }
+}
@@ -0,0 +1,110 @@
+package demo.websocket.server.example4.store;
+
+import demo.websocket.server.example4.domain.Performance;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PerformanceSegmentTest {
+
+    private final CRC32C crc = new CRC32C();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendedRecordsAreRecovered() throws IOException {
+        Path path = directory.resolve("segment");
+        PerformanceSegment segment = PerformanceSegment.create(path, 4);
+        for (long time = 10; time <= 30; time += 10) {
+            assertTrue(segment.append(performance(time), crc));
+        }
+        segment.force();
+
+        PerformanceSegment recovered = PerformanceSegment.open(path, crc);
+        assertEquals(3, recovered.size());
+        assertEquals(10, recovered.firstTime());
+        assertEquals(30, recovered.lastTime());
+        assertEquals(List.of(10L, 20L, 30L), times(recovered, 0, Long.MAX_VALUE));
+
+        List<Double> loads = new ArrayList<>();
+        recovered.scan(20, 21, new PerformanceRecord(), record -> loads.add(record.getProcessCpuLoad()));
+        assertEquals(List.of(0.2), loads);
+    }
+
+    @Test
+    void tornRecordEndsTheSegment() throws IOException {
+        Path path = directory.resolve("segment");
+        PerformanceSegment segment = PerformanceSegment.create(path, 4);
+        for (long time = 10; time <= 30; time += 10) {
+            segment.append(performance(time), crc);
+        }
+        segment.force();
+        // the second record no longer matches its checksum, as if the crash happened while it was written
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(8).putLong(0, -1), PerformanceSegment.RECORD_SIZE + 8);
+        }
+
+        PerformanceSegment recovered = PerformanceSegment.open(path, crc);
+        assertEquals(1, recovered.size());
+        assertEquals(List.of(10L), times(recovered, 0, Long.MAX_VALUE));
+
+        // the records after the torn one were cleared, a new record takes its place and survives a reopen
+        assertTrue(recovered.append(performance(40), crc));
+        recovered.force();
+        assertEquals(List.of(10L, 40L), times(PerformanceSegment.open(path, crc), 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void fullSegmentRejectsRecords() throws IOException {
+        PerformanceSegment segment = PerformanceSegment.create(directory.resolve("segment"), 2);
+        assertTrue(segment.append(performance(10), crc));
+        assertTrue(segment.append(performance(20), crc));
+
+        assertTrue(segment.isFull());
+        assertFalse(segment.append(performance(30), crc));
+        assertEquals(2, segment.size());
+        assertEquals(2L * PerformanceSegment.RECORD_SIZE, segment.bytes());
+    }
+
+    @Test
+    void scanVisitsTheRecordsOfTheRange() throws IOException {
+        PerformanceSegment segment = PerformanceSegment.create(directory.resolve("segment"), 8);
+        for (long time = 10; time <= 50; time += 10) {
+            segment.append(performance(time), crc);
+        }
+
+        assertEquals(List.of(20L, 30L), times(segment, 20, 40));
+        assertEquals(List.of(20L, 30L), times(segment, 11, 31));
+        assertEquals(List.of(), times(segment, 60, 70));
+    }
+
+    static Performance performance(long time) {
+        Performance performance = new Performance();
+        performance.setTime(time);
+        performance.setCommittedVirtualMemorySize(time * 2);
+        performance.setTotalPhysicalMemorySize(1L << 33);
+        performance.setFreePhysicalMemorySize(1L << 32);
+        performance.setSystemCpuLoad(0.5);
+        performance.setProcessCpuLoad(time / 100.0);
+        return performance;
+    }
+
+    private static List<Long> times(PerformanceSegment segment, long from, long to) {
+        List<Long> times = new ArrayList<>();
+        segment.scan(from, to, new PerformanceRecord(), record -> times.add(record.getTime()));
+        return times;
+    }
+}
@@ -0,0 +1,99 @@
+package demo.websocket.server.example4.store;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static demo.websocket.server.example4.store.PerformanceSegmentTest.performance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PerformanceStoreTest {
+
+    // an opened store applies the maximum age to the current time
+    private final long start = System.currentTimeMillis();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void fullSegmentRollsOver() throws IOException {
+        PerformanceStore store = store(Duration.ofDays(1), DataSize.ofMegabytes(1));
+        for (int i = 0; i < 5; i++) {
+            store.append(performance(start + i));
+        }
+
+        assertEquals(3, store.getSegments());
+        assertEquals(3, segmentFiles());
+        assertEquals(5, store.size());
+        assertEquals(List.of(start + 1, start + 2, start + 3), times(store, start + 1, start + 4));
+    }
+
+    @Test
+    void reopenedStoreContinuesAfterTheRecoveredRecords() throws IOException {
+        PerformanceStore store = store(Duration.ofDays(1), DataSize.ofMegabytes(1));
+        for (int i = 0; i < 3; i++) {
+            store.append(performance(start + i));
+        }
+        store.close();
+
+        PerformanceStore reopened = store(Duration.ofDays(1), DataSize.ofMegabytes(1));
+        assertEquals(3, reopened.size());
+        reopened.append(performance(start + 3));
+        assertEquals(List.of(start, start + 1, start + 2, start + 3), times(reopened, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void oldestSegmentsAreDeletedAboveTheMaximumSize() throws IOException {
+        // room for two segments of two records
+        PerformanceStore store = store(Duration.ofDays(1), DataSize.ofBytes(4 * PerformanceSegment.RECORD_SIZE));
+        for (int i = 0; i < 7; i++) {
+            store.append(performance(start + i));
+        }
+
+        assertEquals(2, store.getSegments());
+        assertEquals(2, segmentFiles());
+        assertEquals(List.of(start + 4, start + 5, start + 6), times(store, 0, Long.MAX_VALUE));
+    }
+
+    @Test
+    void segmentsOlderThanTheMaximumAgeAreDeleted() throws IOException {
+        PerformanceStore store = store(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+        for (int i = 0; i < 4; i++) {
+            store.append(performance(start + i));
+        }
+        assertEquals(2, store.getSegments());
+
+        // the next roll is two minutes later, both full segments are past the maximum age
+        store.append(performance(start + Duration.ofMinutes(2).toMillis()));
+        store.append(performance(start + Duration.ofMinutes(2).toMillis() + 1));
+        store.append(performance(start + Duration.ofMinutes(2).toMillis() + 2));
+
+        assertEquals(2, store.getSegments());
+        assertEquals(2, segmentFiles());
+        assertEquals(3, store.size());
+    }
+
+    private PerformanceStore store(Duration maxAge, DataSize maxSize) throws IOException {
+        return new PerformanceStore(directory, 2, maxAge, maxSize);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.count();
+        }
+    }
+
+    private static List<Long> times(PerformanceStore store, long from, long to) {
+        List<Long> times = new ArrayList<>();
+        store.scan(from, to, record -> times.add(record.getTime()));
+        return times;
+    }
+}
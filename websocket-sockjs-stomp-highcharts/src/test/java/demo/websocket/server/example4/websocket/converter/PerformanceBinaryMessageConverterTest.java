@@ -0,0 +1,70 @@
+package demo.websocket.server.example4.websocket.converter;
+
+import demo.websocket.server.example4.domain.Performance;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PerformanceBinaryMessageConverterTest {
+
+    private final PerformanceBinaryMessageConverter converter = new PerformanceBinaryMessageConverter();
+
+    @Test
+    void basicPerformanceRoundTrips() {
+        Performance performance = performance();
+
+        byte[] bytes = (byte[]) converter.convertToInternal(performance, null, null);
+        assertEquals(PerformanceBinaryMessageConverter.PERFORMANCE_SIZE, bytes.length);
+
+        Performance read = read(bytes);
+        assertEquals(performance.getTime(), read.getTime());
+        assertEquals(performance.getProcessCpuLoad(), read.getProcessCpuLoad());
+        assertEquals(-1, read.getIoWaitLoad());
+        assertEquals(0, read.getCoreCpuLoads().length);
+    }
+
+    @Test
+    void procPerformanceRoundTrips() {
+        Performance performance = performance();
+        performance.setIoWaitLoad(0.05);
+        performance.setStealLoad(0.01);
+        performance.setCoreCpuLoads(new double[]{0.1, 0.2, 0.3});
+
+        byte[] bytes = (byte[]) converter.convertToInternal(performance, null, null);
+        assertEquals(PerformanceBinaryMessageConverter.EXTENDED_PERFORMANCE_SIZE + 3 * Double.BYTES, bytes.length);
+
+        Performance read = read(bytes);
+        assertEquals(performance.getFreePhysicalMemorySize(), read.getFreePhysicalMemorySize());
+        assertEquals(0.05, read.getIoWaitLoad());
+        assertEquals(0.01, read.getStealLoad());
+        assertArrayEquals(new double[]{0.1, 0.2, 0.3}, read.getCoreCpuLoads());
+    }
+
+    @Test
+    void unknownLengthIsNotConverted() {
+        assertNull(read(new byte[PerformanceBinaryMessageConverter.PERFORMANCE_SIZE + 8]));
+        assertNull(read(new byte[PerformanceBinaryMessageConverter.EXTENDED_PERFORMANCE_SIZE + 4]));
+    }
+
+    private Performance read(byte[] bytes) {
+        Message<byte[]> message = MessageBuilder.withPayload(bytes).build();
+        return (Performance) converter.convertFromInternal(message, Performance.class, null);
+    }
+
+    private static Performance performance() {
+        Performance performance = new Performance();
+        performance.setTime(1_600_000_000_000L);
+        performance.setCommittedVirtualMemorySize(1L << 30);
+        performance.setTotalSwapSpaceSize(2L << 30);
+        performance.setFreeSwapSpaceSize(1L << 29);
+        performance.setTotalPhysicalMemorySize(8L << 30);
+        performance.setFreePhysicalMemorySize(3L << 30);
+        performance.setSystemCpuLoad(0.42);
+        performance.setProcessCpuLoad(0.07);
+        return performance;
+    }
+}
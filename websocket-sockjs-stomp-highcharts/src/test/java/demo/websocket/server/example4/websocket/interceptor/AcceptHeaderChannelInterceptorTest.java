@@ -0,0 +1,52 @@
+package demo.websocket.server.example4.websocket.interceptor;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AcceptHeaderChannelInterceptorTest {
+
+    private final AcceptHeaderChannelInterceptor interceptor =
+            new AcceptHeaderChannelInterceptor(Collections.singleton("/topic/performance"));
+
+    @Test
+    void binarySubscriptionMovesToTheBinaryDestination() {
+        Message<?> message = subscribe("/topic/performance", "application/octet-stream", true);
+        assertEquals("/topic/performance.binary", brokerDestination(message));
+        assertEquals("/topic/performance.binary",
+                StompHeaderAccessor.wrap(interceptor.preSend(message, null)).getDestination());
+    }
+
+    @Test
+    void subscriptionStaysWithoutBinaryFramesOrAccept() {
+        assertEquals("/topic/performance", brokerDestination(subscribe("/topic/performance", "application/octet-stream", false)));
+        assertEquals("/topic/performance", brokerDestination(subscribe("/topic/performance", "application/json", true)));
+        assertEquals("/topic/performance", brokerDestination(subscribe("/topic/performance", null, true)));
+        assertEquals("/topic/other", brokerDestination(subscribe("/topic/other", "application/octet-stream", true)));
+    }
+
+    private String brokerDestination(Message<?> message) {
+        return interceptor.getBrokerDestination(StompHeaderAccessor.wrap(message));
+    }
+
+    private static Message<?> subscribe(String destination, String accept, boolean binaryFrames) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setDestination(destination);
+        accessor.setSubscriptionId("1");
+        if (accept != null) {
+            accessor.addNativeHeader("accept", accept);
+        }
+        Map<String, Object> sessionAttributes = new HashMap<>();
+        sessionAttributes.put(BinaryFramesHandshakeInterceptor.BINARY_FRAMES_ATTRIBUTE, binaryFrames);
+        accessor.setSessionAttributes(sessionAttributes);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+}
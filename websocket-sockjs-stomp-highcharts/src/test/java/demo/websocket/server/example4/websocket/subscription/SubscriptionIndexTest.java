@@ -0,0 +1,91 @@
+package demo.websocket.server.example4.websocket.subscription;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SubscriptionIndexTest {
+
+    private static final String DESTINATION = "/topic/performance";
+
+    private final SubscriptionIndex index = new SubscriptionIndex();
+
+    @Test
+    void countsSubscribersUntilTheyUnsubscribeOrDisconnect() {
+        index.connect("a");
+        index.connect("b");
+        index.subscribe("a", "1", DESTINATION);
+        index.subscribe("b", "1", DESTINATION);
+        assertEquals(2, index.getSubscriberCount(DESTINATION));
+
+        index.unsubscribe("a", "1");
+        assertEquals(1, index.getSubscriberCount(DESTINATION));
+
+        index.disconnect("b");
+        index.disconnect("b");
+        assertFalse(index.hasSubscribers(DESTINATION));
+        assertEquals(Collections.emptyMap(), index.getSubscriberCounts());
+    }
+
+    @Test
+    void resubscribingWithTheSameIdMovesTheSubscription() {
+        index.connect("a");
+        index.subscribe("a", "1", DESTINATION);
+        index.subscribe("a", "1", "/topic/other");
+        assertEquals(0, index.getSubscriberCount(DESTINATION));
+        assertEquals(1, index.getSubscriberCount("/topic/other"));
+    }
+
+    @Test
+    void eventsAfterDisconnectDoNotBringTheSessionBack() {
+        index.connect("a");
+        index.disconnect("a");
+        index.connected("a");
+        index.subscribe("a", "1", DESTINATION);
+        assertEquals(0, index.getConnectedSessions());
+        assertFalse(index.hasSubscribers(DESTINATION));
+    }
+
+    // sessions coming and going must not lose the count of a subscriber that stays
+    @Test
+    void concurrentChurnKeepsTheCountOfARemainingSubscriber() throws Exception {
+        index.connect("stay");
+        index.subscribe("stay", "1", DESTINATION);
+
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) {
+                    String sessionId = thread + "-" + i;
+                    index.connect(sessionId);
+                    index.subscribe(sessionId, "1", DESTINATION);
+                    if (i % 2 == 0) {
+                        index.unsubscribe(sessionId, "1");
+                    }
+                    index.disconnect(sessionId);
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1, index.getSubscriberCount(DESTINATION));
+    }
+}
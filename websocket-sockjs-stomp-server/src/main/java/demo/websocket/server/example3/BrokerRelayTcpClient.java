@@ -0,0 +1,58 @@
+package demo.websocket.server.example3;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.messaging.simp.stomp.StompReactorNettyCodec;
+import org.springframework.messaging.tcp.reactor.ReactorNettyTcpClient;
+import org.springframework.util.concurrent.ListenableFuture;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+import reactor.netty.tcp.TcpClient;
+
+import java.time.Duration;
+
+// the relay opens one broker connection per client session plus the shared system connection,
+// all of them multiplexed on a few event loop threads; the pool bounds the number of connections
+public class BrokerRelayTcpClient extends ReactorNettyTcpClient<byte[]> {
+
+    private final LoopResources loopResources;
+
+    private final ConnectionProvider connectionProvider;
+
+    private BrokerRelayTcpClient(TcpClient tcpClient, LoopResources loopResources,
+                                 ConnectionProvider connectionProvider) {
+        super(tcpClient, new StompReactorNettyCodec());
+        this.loopResources = loopResources;
+        this.connectionProvider = connectionProvider;
+    }
+
+    public static BrokerRelayTcpClient create(String host, int port, int ioThreads, int maxConnections,
+                                              int connectTimeout) {
+        LoopResources loopResources = LoopResources.create("broker-relay", ioThreads, true);
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("broker-relay")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(Duration.ofMillis(connectTimeout))
+                .build();
+        TcpClient tcpClient = TcpClient.create(connectionProvider)
+                .runOn(loopResources, false)
+                .host(host)
+                .port(port)
+                // frames are small and latency matters more than packet count
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeout);
+        return new BrokerRelayTcpClient(tcpClient, loopResources, connectionProvider);
+    }
+
+    // the relay shuts its client down when it stops, the resources are external to the superclass
+    @Override
+    public ListenableFuture<Void> shutdown() {
+        ListenableFuture<Void> future = super.shutdown();
+        future.addCallback(result -> release(), exception -> release());
+        return future;
+    }
+
+    private void release() {
+        connectionProvider.dispose();
+        loopResources.dispose();
+    }
+}
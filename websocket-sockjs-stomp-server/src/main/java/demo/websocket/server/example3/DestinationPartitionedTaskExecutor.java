@@ -0,0 +1,74 @@
+package demo.websocket.server.example3;
+
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+
+// each destination is hashed to one of a fixed number of single-threaded lanes, so messages to
+// one destination are handled in publication order while unrelated destinations run in parallel
+public class DestinationPartitionedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int partitions;
+
+    private ExecutorService[] lanes;
+
+    public DestinationPartitionedTaskExecutor(int partitions) {
+        this.partitions = partitions;
+    }
+
+    // the lanes take the place of the inherited pool, which is never created: the broker channel only
+    // calls execute, which is dispatched to the lanes
+    @Override
+    protected ExecutorService initializeExecutor(ThreadFactory threadFactory,
+                                                 RejectedExecutionHandler rejectedExecutionHandler) {
+        CustomizableThreadFactory laneThreadFactory = new CustomizableThreadFactory(getThreadNamePrefix() + "lane-");
+        lanes = new ExecutorService[partitions];
+        for (int i = 0; i < partitions; i++) {
+            lanes[i] = Executors.newSingleThreadExecutor(laneThreadFactory);
+        }
+        return null;
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        if (lanes != null) {
+            for (ExecutorService lane : lanes) {
+                lane.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        lanes[partition(getDestination(task))].execute(task);
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    // messages without a destination share the first lane
+    private int partition(String destination) {
+        if (destination == null) {
+            return 0;
+        }
+        int hash = destination.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    private static String getDestination(Runnable task) {
+        if (task instanceof MessageHandlingRunnable) {
+            return SimpMessageHeaderAccessor.getDestination(((MessageHandlingRunnable) task).getMessage().getHeaders());
+        }
+        return null;
+    }
+}
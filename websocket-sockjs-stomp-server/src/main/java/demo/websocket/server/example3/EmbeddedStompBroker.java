@@ -0,0 +1,71 @@
+package demo.websocket.server.example3;
+
+import org.apache.activemq.broker.BrokerService;
+import org.springframework.context.SmartLifecycle;
+
+// an in-process broker for the relay to connect to, so relay mode runs without outside services;
+// several server nodes share it when one of them embeds it and the others relay to its port
+public class EmbeddedStompBroker implements SmartLifecycle {
+
+    // started before and stopped after the relay, which runs in the last phase
+    private static final int PHASE = Integer.MAX_VALUE - 1;
+
+    private final boolean enabled;
+
+    private final int port;
+
+    private final BrokerService brokerService = new BrokerService();
+
+    private volatile boolean running;
+
+    public EmbeddedStompBroker(boolean enabled, int port) {
+        this.enabled = enabled;
+        this.port = port;
+        brokerService.setBrokerName("embedded-stomp-broker");
+        brokerService.setPersistent(false);
+        brokerService.setUseJmx(false);
+        brokerService.setAdvisorySupport(false);
+        brokerService.setUseShutdownHook(false);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            // the connector binds its port as soon as it is added
+            brokerService.addConnector("stomp://localhost:" + port);
+            brokerService.start();
+            brokerService.waitUntilStarted();
+            running = true;
+        } catch (Exception e) {
+            throw new IllegalStateException("Embedded STOMP broker failed to start", e);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        try {
+            brokerService.stop();
+            brokerService.waitUntilStopped();
+        } catch (Exception e) {
+            throw new IllegalStateException("Embedded STOMP broker failed to stop", e);
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+}
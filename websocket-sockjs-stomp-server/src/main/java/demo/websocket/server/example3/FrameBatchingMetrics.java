@@ -0,0 +1,102 @@
+package demo.websocket.server.example3;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class FrameBatchingMetrics {
+
+    private final LongAdder sessions = new LongAdder();
+
+    private final LongAdder frames = new LongAdder();
+
+    private final LongAdder messages = new LongAdder();
+
+    private final LongAdder bytes = new LongAdder();
+
+    private final LongAdder sizeFlushes = new LongAdder();
+
+    private final LongAdder delayFlushes = new LongAdder();
+
+    private final LongAdder immediateFlushes = new LongAdder();
+
+    private final LongAdder delayNanos = new LongAdder();
+
+    private final AtomicLong maxDelayNanos = new AtomicLong();
+
+    public void sessionOpened() {
+        sessions.increment();
+    }
+
+    public void frameBatched() {
+        frames.increment();
+    }
+
+    public void frameSent() {
+        frames.increment();
+        messages.increment();
+    }
+
+    // the delay is the time the first frame of the batch waited to be written
+    public void batchSent(int length, long delay, FlushReason reason) {
+        messages.increment();
+        bytes.add(length);
+        delayNanos.add(delay);
+        maxDelayNanos.accumulateAndGet(delay, Math::max);
+        switch (reason) {
+            case SIZE:
+                sizeFlushes.increment();
+                break;
+            case DELAY:
+                delayFlushes.increment();
+                break;
+            default:
+                immediateFlushes.increment();
+        }
+    }
+
+    public long getSessions() {
+        return sessions.sum();
+    }
+
+    public long getFrames() {
+        return frames.sum();
+    }
+
+    public long getMessages() {
+        return messages.sum();
+    }
+
+    public long getBatchedBytes() {
+        return bytes.sum();
+    }
+
+    public double getFramesPerMessage() {
+        long count = messages.sum();
+        return count > 0 ? (double) frames.sum() / count : 0;
+    }
+
+    public long getSizeFlushes() {
+        return sizeFlushes.sum();
+    }
+
+    public long getDelayFlushes() {
+        return delayFlushes.sum();
+    }
+
+    public long getImmediateFlushes() {
+        return immediateFlushes.sum();
+    }
+
+    public double getAverageDelayMillis() {
+        long count = sizeFlushes.sum() + delayFlushes.sum() + immediateFlushes.sum();
+        return count > 0 ? delayNanos.sum() / 1e6 / count : 0;
+    }
+
+    public double getMaxDelayMillis() {
+        return maxDelayNanos.get() / 1e6;
+    }
+
+    public enum FlushReason {
+        SIZE, DELAY, IMMEDIATE
+    }
+}
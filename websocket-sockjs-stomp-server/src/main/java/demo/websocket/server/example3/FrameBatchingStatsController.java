@@ -0,0 +1,34 @@
+package demo.websocket.server.example3;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+public class FrameBatchingStatsController {
+
+    private final FrameBatchingMetrics frameBatchingMetrics;
+
+    public FrameBatchingStatsController(FrameBatchingMetrics frameBatchingMetrics) {
+        this.frameBatchingMetrics = frameBatchingMetrics;
+    }
+
+    // every message is one write to the socket, so frames per message is the reduction of writes
+    @GetMapping("/frame-batching-stats")
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sessions", frameBatchingMetrics.getSessions());
+        stats.put("frames", frameBatchingMetrics.getFrames());
+        stats.put("messages", frameBatchingMetrics.getMessages());
+        stats.put("framesPerMessage", frameBatchingMetrics.getFramesPerMessage());
+        stats.put("batchedBytes", frameBatchingMetrics.getBatchedBytes());
+        stats.put("sizeFlushes", frameBatchingMetrics.getSizeFlushes());
+        stats.put("delayFlushes", frameBatchingMetrics.getDelayFlushes());
+        stats.put("immediateFlushes", frameBatchingMetrics.getImmediateFlushes());
+        stats.put("averageDelayMillis", frameBatchingMetrics.getAverageDelayMillis());
+        stats.put("maxDelayMillis", frameBatchingMetrics.getMaxDelayMillis());
+        return stats;
+    }
+}
@@ -0,0 +1,148 @@
+package demo.websocket.server.example3;
+
+import demo.websocket.server.example3.FrameBatchingMetrics.FlushReason;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// STOMP frames are terminated by a NUL octet, so the frames sent to a session within a short window are
+// coalesced into one text message that clients decode back into the same frames
+public class FrameBatchingWebSocketHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private static final Logger logger = LoggerFactory.getLogger(FrameBatchingWebSocketHandlerDecorator.class);
+
+    private final ScheduledExecutorService scheduler;
+
+    private final long delayMicros;
+
+    private final int bufferSize;
+
+    private final FrameBatchingMetrics metrics;
+
+    public FrameBatchingWebSocketHandlerDecorator(WebSocketHandler delegate, ScheduledExecutorService scheduler,
+                                                  long delayMicros, int bufferSize, FrameBatchingMetrics metrics) {
+        super(delegate);
+        this.scheduler = scheduler;
+        this.delayMicros = delayMicros;
+        this.bufferSize = bufferSize;
+        this.metrics = metrics;
+    }
+
+    // SockJS sessions already queue messages and send them as frame arrays; the decorators added after this
+    // one, such as the compression metrics, wrap the session before it gets here
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        if (WebSocketSessionDecorator.unwrap(session) instanceof SockJsSession) {
+            super.afterConnectionEstablished(session);
+        } else {
+            metrics.sessionOpened();
+            super.afterConnectionEstablished(new BatchingWebSocketSession(session));
+        }
+    }
+
+    private class BatchingWebSocketSession extends WebSocketSessionDecorator {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final ByteArrayOutputStream pending = new ByteArrayOutputStream(bufferSize);
+
+        private long firstPendingTime;
+
+        BatchingWebSocketSession(WebSocketSession session) {
+            super(session);
+        }
+
+        // called by one sending thread at a time, and by the scheduler when the window of a batch ends
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            lock.lock();
+            try {
+                if (!(message instanceof TextMessage) || !message.isLast()) {
+                    // binary and partial messages can not be merged, the frames before them are written first
+                    flush(FlushReason.IMMEDIATE);
+                    metrics.frameSent();
+                    super.sendMessage(message);
+                    return;
+                }
+                byte[] payload = ((TextMessage) message).asBytes();
+                if (pending.size() == 0) {
+                    if (payload.length >= bufferSize) {
+                        metrics.frameSent();
+                        super.sendMessage(message);
+                        return;
+                    }
+                    firstPendingTime = System.nanoTime();
+                    scheduleFlush();
+                }
+                pending.write(payload, 0, payload.length);
+                metrics.frameBatched();
+                if (pending.size() >= bufferSize) {
+                    flush(FlushReason.SIZE);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close(CloseStatus status) throws IOException {
+            lock.lock();
+            try {
+                if (isOpen()) {
+                    flush(FlushReason.IMMEDIATE);
+                }
+            } finally {
+                lock.unlock();
+            }
+            super.close(status);
+        }
+
+        private void scheduleFlush() {
+            scheduler.schedule(this::flushDelayed, delayMicros, TimeUnit.MICROSECONDS);
+        }
+
+        // a scheduler thread does not wait for a sending thread that is blocked on a slow client
+        private void flushDelayed() {
+            if (!lock.tryLock()) {
+                scheduleFlush();
+                return;
+            }
+            try {
+                if (isOpen()) {
+                    flush(FlushReason.DELAY);
+                } else {
+                    pending.reset();
+                }
+            } catch (IOException | RuntimeException e) {
+                // the sending threads see the failed connection on their next write
+                logger.debug("Failed to send batched frames to session {}", getId(), e);
+                pending.reset();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void flush(FlushReason reason) throws IOException {
+            if (pending.size() == 0) {
+                return;
+            }
+            TextMessage batch = new TextMessage(pending.toByteArray());
+            pending.reset();
+            metrics.batchSent(batch.getPayloadLength(), System.nanoTime() - firstPendingTime, reason);
+            super.sendMessage(batch);
+        }
+    }
+}
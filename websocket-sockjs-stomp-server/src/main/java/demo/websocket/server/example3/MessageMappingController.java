@@ -2,9 +2,11 @@ package demo.websocket.server.example3;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.util.HtmlUtils;
 
@@ -13,6 +15,9 @@ public class MessageMappingController {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageMappingController.class);
 
+    @Value("${stomp.blocking-latency}")
+    private long blockingLatency;
+
     @MessageMapping("/request-without-response")
     public void handleMessageWithoutResponse(String message) {
         logger.info("Message without response: {}", message);
@@ -35,6 +40,15 @@ public class MessageMappingController {
         return "response to " + HtmlUtils.htmlEscape(message);
     }
 
+    // stands in for a handler that waits on a remote call
+    @MessageMapping("/blocking-request")
+    @SendToUser("/queue/blocking-responses")
+    public String handleBlockingMessage(String message) throws InterruptedException {
+        logger.info("Blocking message with response: {}", message);
+        Thread.sleep(blockingLatency);
+        return "response to " + HtmlUtils.htmlEscape(message);
+    }
+
     @MessageExceptionHandler
     @SendTo("/queue/errors")
     public String handleException(Throwable exception) {
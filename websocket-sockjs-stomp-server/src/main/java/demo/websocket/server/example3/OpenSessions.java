@@ -0,0 +1,38 @@
+package demo.websocket.server.example3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// the sessions open on the endpoints, so that they can be closed by id from outside their handler
+public class OpenSessions {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenSessions.class);
+
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    void add(WebSocketSession session) {
+        sessions.put(session.getId(), session);
+    }
+
+    void remove(WebSocketSession session) {
+        sessions.remove(session.getId());
+    }
+
+    public void closeSession(String sessionId, CloseStatus closeStatus) {
+        WebSocketSession session = sessions.get(sessionId);
+        if (session == null) {
+            return;
+        }
+        try {
+            session.close(closeStatus);
+        } catch (IOException e) {
+            logger.debug("Failed to close session {}", sessionId, e);
+        }
+    }
+}
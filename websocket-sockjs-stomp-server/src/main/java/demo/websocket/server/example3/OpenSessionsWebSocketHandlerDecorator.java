@@ -0,0 +1,28 @@
+package demo.websocket.server.example3;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+public class OpenSessionsWebSocketHandlerDecorator extends WebSocketHandlerDecorator {
+
+    private final OpenSessions openSessions;
+
+    public OpenSessionsWebSocketHandlerDecorator(WebSocketHandler delegate, OpenSessions openSessions) {
+        super(delegate);
+        this.openSessions = openSessions;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        openSessions.add(session);
+        super.afterConnectionEstablished(session);
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+        openSessions.remove(session);
+        super.afterConnectionClosed(session, closeStatus);
+    }
+}
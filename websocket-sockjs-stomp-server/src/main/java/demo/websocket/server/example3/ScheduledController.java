@@ -1,23 +1,43 @@
 package demo.websocket.server.example3;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
 import org.springframework.messaging.core.MessageSendingOperations;
+import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalTime;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Component
-public class ScheduledController {
+public class ScheduledController implements ApplicationListener<BrokerAvailabilityEvent> {
 
     private final MessageSendingOperations<String> messageSendingOperations;
 
-    public ScheduledController(MessageSendingOperations<String> messageSendingOperations) {
+    private final String nodeName;
+
+    private final AtomicBoolean brokerAvailable = new AtomicBoolean(false);
+
+    public ScheduledController(MessageSendingOperations<String> messageSendingOperations,
+                               @Value("${stomp.node-name}") String nodeName) {
         this.messageSendingOperations = messageSendingOperations;
+        this.nodeName = nodeName;
+    }
+
+    // a relayed broker becomes available only once the system session is connected, and again after reconnecting
+    @Override
+    public void onApplicationEvent(BrokerAvailabilityEvent event) {
+        brokerAvailable.set(event.isBrokerAvailable());
     }
 
     @Scheduled(fixedDelay = 10000)
     public void sendPeriodicMessages() {
-        String broadcast = String.format("server periodic message %s via the broker", LocalTime.now());
+        if (!brokerAvailable.get()) {
+            return;
+        }
+        // the node name tells subscribers of other nodes that the message was relayed
+        String broadcast = String.format("server periodic message %s via the broker from node %s", LocalTime.now(), nodeName);
         this.messageSendingOperations.convertAndSend("/topic/periodic", broadcast);
     }
 }
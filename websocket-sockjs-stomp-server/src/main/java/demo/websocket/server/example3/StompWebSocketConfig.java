@@ -1,25 +1,209 @@
 package demo.websocket.server.example3;
 
+import demo.websocket.compression.CompressionMetrics;
+import demo.websocket.compression.CompressionMetricsWebSocketHandlerDecorator;
+import demo.websocket.compression.CompressionStatsController;
+import demo.websocket.compression.PerMessageDeflateHandshakeHandler;
+import demo.websocket.stomp.SessionOrderedTaskExecutor;
+import demo.websocket.stomp.TrieSubscriptionRegistryPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class StompWebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    @Value("${stomp.virtual-threads}")
+    private boolean virtualThreads;
+
+    @Value("${stomp.outbound.session-queue-limit}")
+    private int outboundSessionQueueLimit;
+
+    @Value("${compression.enabled}")
+    private boolean compressionEnabled;
+
+    @Value("${compression.server-no-context-takeover}")
+    private boolean compressionServerNoContextTakeover;
+
+    @Value("${compression.client-no-context-takeover}")
+    private boolean compressionClientNoContextTakeover;
+
+    @Value("${compression.sample-rate}")
+    private int compressionSampleRate;
+
+    @Value("${stomp.frame-batching.enabled}")
+    private boolean frameBatchingEnabled;
+
+    @Value("${stomp.frame-batching.delay-micros}")
+    private long frameBatchingDelayMicros;
+
+    @Value("${stomp.frame-batching.buffer-size}")
+    private int frameBatchingBufferSize;
+
+    @Value("${stomp.partitioned-broker.enabled}")
+    private boolean partitionedBrokerEnabled;
+
+    @Value("${stomp.partitioned-broker.partitions}")
+    private int partitionedBrokerPartitions;
+
+    @Value("${stomp.broker-relay.enabled}")
+    private boolean brokerRelayEnabled;
+
+    @Value("${stomp.broker-relay.host}")
+    private String brokerRelayHost;
+
+    @Value("${stomp.broker-relay.port}")
+    private int brokerRelayPort;
+
+    @Value("${stomp.broker-relay.login}")
+    private String brokerRelayLogin;
+
+    @Value("${stomp.broker-relay.passcode}")
+    private String brokerRelayPasscode;
+
+    @Value("${stomp.broker-relay.system-heartbeat-interval}")
+    private long brokerRelaySystemHeartbeatInterval;
+
+    @Value("${stomp.broker-relay.io-threads}")
+    private int brokerRelayIoThreads;
+
+    @Value("${stomp.broker-relay.max-connections}")
+    private int brokerRelayMaxConnections;
+
+    @Value("${stomp.broker-relay.connect-timeout}")
+    private int brokerRelayConnectTimeout;
+
+    @Value("${stomp.embedded-broker.enabled}")
+    private boolean embeddedBrokerEnabled;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        registry.addEndpoint("/websocket-sockjs-stomp");
-        registry.addEndpoint("/websocket-sockjs-stomp").withSockJS();
+        registry.addEndpoint("/websocket-sockjs-stomp")
+                .setHandshakeHandler(perMessageDeflateHandshakeHandler());
+        registry.addEndpoint("/websocket-sockjs-stomp")
+                .setHandshakeHandler(perMessageDeflateHandshakeHandler())
+                .withSockJS();
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.taskExecutor(new SessionOrderedTaskExecutor(virtualThreads))
+                .corePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        SessionOrderedTaskExecutor executor = new SessionOrderedTaskExecutor(virtualThreads, outboundSessionQueueLimit);
+        // the executor orders the sends of a session, so the send limits of the session decorator never apply
+        executor.setSessionQueueOverflowHandler(
+                sessionId -> openSessions().closeSession(sessionId, CloseStatus.SESSION_NOT_RELIABLE));
+        registration.taskExecutor(executor)
+                .corePoolSize(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // added first, so that the compression metrics see the batched messages
+        if (frameBatchingEnabled) {
+            registration.addDecoratorFactory(handler -> new FrameBatchingWebSocketHandlerDecorator(handler,
+                    frameBatchingScheduler(), frameBatchingDelayMicros, frameBatchingBufferSize, frameBatchingMetrics()));
+        }
+        registration.addDecoratorFactory(handler -> new CompressionMetricsWebSocketHandlerDecorator(handler, compressionMetrics()));
+        // added last, so that it keeps the undecorated sessions
+        registration.addDecoratorFactory(handler -> new OpenSessionsWebSocketHandlerDecorator(handler, openSessions()));
     }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/queue", "/topic");
+        if (brokerRelayEnabled) {
+            // messages published on one node reach the subscribers of all nodes relaying to the same broker
+            registry.enableStompBrokerRelay("/queue", "/topic")
+                    .setClientLogin(brokerRelayLogin)
+                    .setClientPasscode(brokerRelayPasscode)
+                    .setSystemLogin(brokerRelayLogin)
+                    .setSystemPasscode(brokerRelayPasscode)
+                    .setSystemHeartbeatSendInterval(brokerRelaySystemHeartbeatInterval)
+                    .setSystemHeartbeatReceiveInterval(brokerRelaySystemHeartbeatInterval)
+                    // user destinations of sessions connected to other nodes are resolved there
+                    .setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                    .setUserRegistryBroadcast("/topic/simp-user-registry")
+                    .setTcpClient(BrokerRelayTcpClient.create(brokerRelayHost, brokerRelayPort,
+                            brokerRelayIoThreads, brokerRelayMaxConnections, brokerRelayConnectTimeout));
+        } else {
+            registry.enableSimpleBroker("/queue", "/topic");
+        }
         registry.setApplicationDestinationPrefixes("/app");
-        registry.setPreservePublishOrder(true);
+        if (partitionedBrokerEnabled) {
+            // the broker dispatches on lanes by destination instead of on the publishing threads,
+            // the session-ordered outbound executor keeps the order per session without the broker's
+            // own per-session send queues
+            int partitions = (partitionedBrokerPartitions > 0)
+                    ? partitionedBrokerPartitions : Runtime.getRuntime().availableProcessors();
+            registry.configureBrokerChannel().taskExecutor(new DestinationPartitionedTaskExecutor(partitions));
+            registry.setPreservePublishOrder(false);
+        } else {
+            registry.setPreservePublishOrder(true);
+        }
+    }
+
+    // static, so that the post processor does not create this configuration before the other beans
+    @Bean
+    public static TrieSubscriptionRegistryPostProcessor trieSubscriptionRegistryPostProcessor(
+            @Value("${stomp.subscription-registry.trie}") boolean enabled,
+            @Value("${stomp.subscription-registry.cache-limit}") int cacheLimit) {
+        return new TrieSubscriptionRegistryPostProcessor(enabled, cacheLimit);
+    }
+
+    @Bean
+    public EmbeddedStompBroker embeddedStompBroker() {
+        return new EmbeddedStompBroker(embeddedBrokerEnabled, brokerRelayPort);
+    }
+
+    @Bean
+    public PerMessageDeflateHandshakeHandler perMessageDeflateHandshakeHandler() {
+        return new PerMessageDeflateHandshakeHandler(compressionEnabled, compressionServerNoContextTakeover,
+                compressionClientNoContextTakeover);
+    }
+
+    // not a TaskScheduler, so that the @Scheduled methods keep using the broker's scheduler;
+    // only called by configureWebSocketTransport under the same property
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "stomp.frame-batching.enabled", havingValue = "true")
+    public ScheduledExecutorService frameBatchingScheduler() {
+        return Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+                new CustomizableThreadFactory("frameBatching-"));
+    }
+
+    @Bean
+    public OpenSessions openSessions() {
+        return new OpenSessions();
+    }
+
+    @Bean
+    public FrameBatchingMetrics frameBatchingMetrics() {
+        return new FrameBatchingMetrics();
+    }
+
+    @Bean
+    public CompressionMetrics compressionMetrics() {
+        return new CompressionMetrics("/websocket-sockjs-stomp", compressionSampleRate);
+    }
+
+    @Bean
+    public CompressionStatsController compressionStatsController() {
+        return new CompressionStatsController(compressionMetrics());
     }
 }
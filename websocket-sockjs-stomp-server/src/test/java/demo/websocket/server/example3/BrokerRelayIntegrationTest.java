@@ -0,0 +1,120 @@
+package demo.websocket.server.example3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.util.SocketUtils;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+// node a embeds the broker and relays to it, node b only relays to it; a client of node b has to receive
+// the periodic broadcasts of node a
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "stomp.node-name=node-a",
+        "stomp.broker-relay.enabled=true",
+        "stomp.embedded-broker.enabled=true"
+})
+class BrokerRelayIntegrationTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BrokerRelayIntegrationTest.class);
+
+    private static final int BROKER_PORT = SocketUtils.findAvailableTcpPort();
+
+    // the broadcasts are sent every 10 seconds once the relay of a node is connected
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private static final Pattern BROADCAST = Pattern.compile("server periodic message (\\S+) via the broker from node (\\S+)");
+
+    @LocalServerPort
+    private int portA;
+
+    private ConfigurableApplicationContext nodeB;
+
+    private WebSocketStompClient stompClient;
+
+    @DynamicPropertySource
+    static void brokerProperties(DynamicPropertyRegistry registry) {
+        registry.add("stomp.broker-relay.port", () -> BROKER_PORT);
+    }
+
+    @BeforeEach
+    void startNodeB() {
+        // as arguments, default properties would be overridden by application.properties
+        nodeB = new SpringApplicationBuilder(ServerWebSocketSockJsStompApplication.class)
+                .run("--server.port=0",
+                        "--stomp.node-name=node-b",
+                        "--stomp.broker-relay.enabled=true",
+                        "--stomp.broker-relay.port=" + BROKER_PORT,
+                        "--stomp.embedded-broker.enabled=false");
+
+        stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new StringMessageConverter());
+    }
+
+    @AfterEach
+    void stopNodeB() {
+        stompClient.stop();
+        nodeB.close();
+    }
+
+    @Test
+    void broadcastOfOneNodeReachesSubscribersOfTheOther() throws Exception {
+        int portB = nodeB.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        StompSession session = stompClient
+                .connect("ws://localhost:" + portB + "/websocket-sockjs-stomp", new StompSessionHandlerAdapter() {
+                })
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        session.subscribe("/topic/periodic", new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((String) payload);
+            }
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        Matcher relayed = null;
+        while (relayed == null && System.nanoTime() < deadline) {
+            String message = received.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            Matcher matcher = (message != null) ? BROADCAST.matcher(message) : null;
+            if (matcher != null && matcher.matches() && matcher.group(2).equals("node-a")) {
+                relayed = matcher;
+            }
+        }
+        assertNotNull(relayed, "no broadcast of node a on port " + portA + " received on node b");
+
+        // the nodes and the client share the clock, so the time sent in the message gives the latency
+        Duration latency = Duration.between(LocalTime.parse(relayed.group(1)), LocalTime.now());
+        logger.info("Cross-node latency of /topic/periodic: {} ms", latency.toNanos() / 1_000_000.0);
+        session.disconnect();
+    }
+}
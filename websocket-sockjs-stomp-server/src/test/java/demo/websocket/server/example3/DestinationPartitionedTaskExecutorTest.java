@@ -0,0 +1,96 @@
+package demo.websocket.server.example3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DestinationPartitionedTaskExecutorTest {
+
+    private final DestinationPartitionedTaskExecutor executor = new DestinationPartitionedTaskExecutor(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void messagesToADestinationRunInOrderOnTheLanes() throws InterruptedException {
+        executor.setThreadNamePrefix("brokerChannel-");
+        executor.initialize();
+
+        Map<String, List<Integer>> received = new ConcurrentHashMap<>();
+        Map<String, String> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(8 * 500);
+        for (int i = 0; i < 500; i++) {
+            for (int d = 0; d < 8; d++) {
+                String destination = "/topic/" + d;
+                int index = i;
+                executor.execute(new DestinationTask(destination, () -> {
+                    received.computeIfAbsent(destination, key -> new ArrayList<>()).add(index);
+                    threads.put(destination, Thread.currentThread().getName());
+                    done.countDown();
+                }));
+            }
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (List<Integer> indexes : received.values()) {
+            for (int i = 0; i < 500; i++) {
+                assertEquals(i, indexes.get(i));
+            }
+        }
+        threads.values().forEach(name -> assertTrue(name.startsWith("brokerChannel-lane-"), name));
+    }
+
+    @Test
+    void inheritedPoolIsNotCreated() {
+        executor.initialize();
+
+        assertThrows(IllegalStateException.class, executor::getThreadPoolExecutor);
+    }
+
+    private static class DestinationTask implements MessageHandlingRunnable {
+
+        private final Message<byte[]> message;
+
+        private final Runnable action;
+
+        DestinationTask(String destination, Runnable action) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(destination);
+            this.message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+            this.action = action;
+        }
+
+        @Override
+        public Message<?> getMessage() {
+            return message;
+        }
+
+        @Override
+        public MessageHandler getMessageHandler() {
+            return null;
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package demo.websocket.server.example3;
+
+import demo.websocket.compression.CompressionMetrics;
+import demo.websocket.compression.CompressionMetricsWebSocketHandlerDecorator;
+import demo.websocket.compression.PerMessageDeflateHandshakeHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.sockjs.transport.SockJsSession;
+
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// the decorators are chained as in StompWebSocketConfig, the compression metrics outside the batching
+class FrameBatchingWebSocketHandlerDecoratorTest {
+
+    private static final long DELAY_MICROS = 50_000;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    private final FrameBatchingMetrics metrics = new FrameBatchingMetrics();
+
+    private final WebSocketHandler handler = mock(WebSocketHandler.class);
+
+    private final WebSocketHandler decorated = new CompressionMetricsWebSocketHandlerDecorator(
+            new FrameBatchingWebSocketHandlerDecorator(handler, scheduler, DELAY_MICROS, 16384, metrics),
+            new CompressionMetrics("/test", 100));
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void compressedSockJsSessionIsNotBatched() throws Exception {
+        WebSocketSession session = compressedSession(SockJsSession.class);
+
+        WebSocketSession handlerSession = connect(session);
+        handlerSession.sendMessage(new TextMessage("a\0"));
+        handlerSession.sendMessage(new TextMessage("b\0"));
+
+        verify(session).sendMessage(new TextMessage("a\0"));
+        verify(session).sendMessage(new TextMessage("b\0"));
+        assertEquals(0, metrics.getSessions());
+    }
+
+    @Test
+    void compressedWebSocketSessionIsBatched() throws Exception {
+        WebSocketSession session = compressedSession(WebSocketSession.class);
+
+        WebSocketSession handlerSession = connect(session);
+        handlerSession.sendMessage(new TextMessage("a\0"));
+        handlerSession.sendMessage(new TextMessage("b\0"));
+
+        verify(session, never()).sendMessage(any());
+        verify(session, timeout(5000)).sendMessage(new TextMessage("a\0b\0"));
+        assertEquals(1, metrics.getSessions());
+        assertEquals(2, metrics.getFrames());
+    }
+
+    private static <T extends WebSocketSession> T compressedSession(Class<T> type) {
+        T session = mock(type);
+        when(session.getId()).thenReturn("1");
+        when(session.isOpen()).thenReturn(true);
+        when(session.getExtensions()).thenReturn(
+                Collections.singletonList(new WebSocketExtension(PerMessageDeflateHandshakeHandler.PERMESSAGE_DEFLATE)));
+        return session;
+    }
+
+    // the session the STOMP handler would send to
+    private WebSocketSession connect(WebSocketSession session) throws Exception {
+        decorated.afterConnectionEstablished(session);
+        ArgumentCaptor<WebSocketSession> captor = ArgumentCaptor.forClass(WebSocketSession.class);
+        verify(handler).afterConnectionEstablished(captor.capture());
+        return captor.getValue();
+    }
+}
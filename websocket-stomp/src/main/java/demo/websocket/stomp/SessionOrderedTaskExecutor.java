@@ -0,0 +1,327 @@
+package demo.websocket.stomp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public class SessionOrderedTaskExecutor extends ThreadPoolTaskExecutor {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionOrderedTaskExecutor.class);
+
+    private final boolean virtualThreads;
+
+    private final Set<String> conflatedDestinations;
+
+    private final int sessionQueueLimit;
+
+    private volatile Consumer<String> sessionQueueOverflowHandler = sessionId -> {
+    };
+
+    // a session has an entry while one of its tasks is running, later tasks wait in the entry's queue
+    private final Map<String, SessionTasks> pendingTasks = new ConcurrentHashMap<>();
+
+    private ExecutorService virtualThreadExecutor;
+
+    private final LongAdder sessionQueuedTaskCount = new LongAdder();
+    private final LongAdder conflatedTaskCount = new LongAdder();
+    private final LongAdder droppedTaskCount = new LongAdder();
+    private final LongAdder sessionQueueOverflowCount = new LongAdder();
+    private final LongAdder runningVirtualTasks = new LongAdder();
+
+    public SessionOrderedTaskExecutor(boolean virtualThreads) {
+        this(virtualThreads, Collections.emptySet(), 0);
+    }
+
+    public SessionOrderedTaskExecutor(boolean virtualThreads, int sessionQueueLimit) {
+        this(virtualThreads, Collections.emptySet(), sessionQueueLimit);
+    }
+
+    // a limit of 0 lets the queue of a session grow without bound
+    public SessionOrderedTaskExecutor(boolean virtualThreads, Set<String> conflatedDestinations, int sessionQueueLimit) {
+        this.virtualThreads = virtualThreads;
+        this.conflatedDestinations = conflatedDestinations;
+        this.sessionQueueLimit = sessionQueueLimit;
+    }
+
+    // called with the id of a session whose queue exceeded the limit, on a thread of this executor
+    public void setSessionQueueOverflowHandler(Consumer<String> sessionQueueOverflowHandler) {
+        this.sessionQueueOverflowHandler = sessionQueueOverflowHandler;
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        if (virtualThreads) {
+            virtualThreadExecutor = newVirtualThreadPerTaskExecutor(getThreadNamePrefix());
+            logger.info("Executor {} runs tasks on virtual threads", getThreadNamePrefix());
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        super.shutdown();
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        String sessionId = getSessionId(task);
+        if (sessionId == null) {
+            dispatch(task);
+            return;
+        }
+
+        String conflationKey = getConflationKey(task);
+        boolean[] running = new boolean[1];
+        boolean[] overflowed = new boolean[1];
+        pendingTasks.compute(sessionId, (id, tasks) -> {
+            if (tasks == null) {
+                return new SessionTasks();
+            }
+            running[0] = true;
+            if (tasks.overflowed) {
+                droppedTaskCount.increment();
+            } else if (sessionQueueLimit > 0 && tasks.size() >= sessionQueueLimit) {
+                // the client does not keep up: its backlog is dropped and the session is closed,
+                // later tasks are dropped until the running one completes
+                tasks.overflowed = true;
+                int cleared = tasks.clear();
+                sessionQueuedTaskCount.add(-cleared);
+                droppedTaskCount.add(cleared + 1);
+                overflowed[0] = true;
+            } else if (tasks.add(task, conflationKey)) {
+                sessionQueuedTaskCount.increment();
+            } else {
+                conflatedTaskCount.increment();
+            }
+            return tasks;
+        });
+        if (overflowed[0]) {
+            sessionQueueOverflowCount.increment();
+            logger.warn("Session {} exceeded the limit of {} queued tasks in executor {}, closing it",
+                    sessionId, sessionQueueLimit, getThreadNamePrefix());
+            // closing may block on a send in progress, so not on the thread of the sender
+            dispatch(() -> sessionQueueOverflowHandler.accept(sessionId));
+        } else if (!running[0]) {
+            try {
+                dispatch(() -> runAndDispatchNext(sessionId, task));
+            } catch (RuntimeException e) {
+                dropPendingTasks(sessionId, e);
+                throw e;
+            }
+        }
+    }
+
+    // the tasks queued behind the rejected one would never be dispatched
+    private void dropPendingTasks(String sessionId, RuntimeException e) {
+        SessionTasks tasks = pendingTasks.remove(sessionId);
+        int dropped = (tasks != null) ? tasks.clear() : 0;
+        sessionQueuedTaskCount.add(-dropped);
+        droppedTaskCount.add(dropped + 1);
+        logger.warn("Executor {} rejected a task of session {}, dropped {} queued tasks",
+                getThreadNamePrefix(), sessionId, dropped, e);
+    }
+
+    private void runAndDispatchNext(String sessionId, Runnable task) {
+        try {
+            task.run();
+        } finally {
+            Runnable[] next = new Runnable[1];
+            pendingTasks.computeIfPresent(sessionId, (id, tasks) -> {
+                next[0] = tasks.poll();
+                return (next[0] != null) ? tasks : null;
+            });
+            if (next[0] != null) {
+                sessionQueuedTaskCount.decrement();
+                Runnable nextTask = next[0];
+                try {
+                    dispatch(() -> runAndDispatchNext(sessionId, nextTask));
+                } catch (RuntimeException e) {
+                    // not rethrown: on a worker thread it would replace the exception of the task that just ran
+                    dropPendingTasks(sessionId, e);
+                }
+            }
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.execute(() -> {
+                runningVirtualTasks.increment();
+                try {
+                    task.run();
+                } finally {
+                    runningVirtualTasks.decrement();
+                }
+            });
+        } else {
+            super.execute(task);
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return (virtualThreadExecutor != null) ? runningVirtualTasks.intValue() : super.getActiveCount();
+    }
+
+    // tasks waiting behind a running task of the same session
+    public long getSessionQueuedTaskCount() {
+        return sessionQueuedTaskCount.sum();
+    }
+
+    // tasks replaced by a newer message before they were run
+    public long getConflatedTaskCount() {
+        return conflatedTaskCount.sum();
+    }
+
+    // tasks discarded because their session overflowed or the executor rejected them
+    public long getDroppedTaskCount() {
+        return droppedTaskCount.sum();
+    }
+
+    // sessions closed because their queue exceeded the limit
+    public long getSessionQueueOverflowCount() {
+        return sessionQueueOverflowCount.sum();
+    }
+
+    // the sessions with tasks waiting and the number of their tasks
+    public Map<String, Integer> getSessionQueueSizes() {
+        Map<String, Integer> sizes = new TreeMap<>();
+        pendingTasks.forEach((sessionId, tasks) -> {
+            int size = tasks.size();
+            if (size > 0) {
+                sizes.put(sessionId, size);
+            }
+        });
+        return sizes;
+    }
+
+    private String getConflationKey(Runnable task) {
+        if (conflatedDestinations.isEmpty() || !(task instanceof MessageHandlingRunnable)) {
+            return null;
+        }
+        Map<String, Object> headers = ((MessageHandlingRunnable) task).getMessage().getHeaders();
+        String destination = SimpMessageHeaderAccessor.getDestination(headers);
+        if (destination == null || !conflatedDestinations.contains(destination)) {
+            return null;
+        }
+        return destination + '#' + SimpMessageHeaderAccessor.getSubscriptionId(headers);
+    }
+
+    private static String getSessionId(Runnable task) {
+        if (task instanceof MessageHandlingRunnable) {
+            return SimpMessageHeaderAccessor.getSessionId(((MessageHandlingRunnable) task).getMessage().getHeaders());
+        }
+        return null;
+    }
+
+    // looked up reflectively: the classes are compiled for Java 11, the ASM in Spring 5.2 cannot read newer class files
+    private static ExecutorService newVirtualThreadPerTaskExecutor(String threadNamePrefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21, running on Java "
+                    + System.getProperty("java.version"), e);
+        }
+    }
+
+    // only touched inside ConcurrentHashMap.compute for the owning session
+    private static class SessionTasks {
+
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        private final Map<String, ConflatedTask> conflatedTasks = new HashMap<>();
+
+        // written inside compute, read without locking by the metrics
+        private volatile int size;
+
+        private boolean overflowed;
+
+        int size() {
+            return size;
+        }
+
+        // the number of queued tasks that were removed
+        int clear() {
+            int cleared = tasks.size();
+            tasks.clear();
+            conflatedTasks.clear();
+            size = 0;
+            return cleared;
+        }
+
+        // false when the task replaced a queued one instead of being queued
+        boolean add(Runnable task, String conflationKey) {
+            if (conflationKey == null) {
+                tasks.add(task);
+                size = tasks.size();
+                return true;
+            }
+
+            ConflatedTask conflatedTask = conflatedTasks.get(conflationKey);
+            if (conflatedTask != null) {
+                // the newer message takes the place of the unsent one
+                conflatedTask.task = task;
+                return false;
+            }
+            conflatedTask = new ConflatedTask(conflationKey, task);
+            conflatedTasks.put(conflationKey, conflatedTask);
+            tasks.add(conflatedTask);
+            size = tasks.size();
+            return true;
+        }
+
+        Runnable poll() {
+            Runnable task = tasks.poll();
+            size = tasks.size();
+            if (task instanceof ConflatedTask) {
+                ConflatedTask conflatedTask = (ConflatedTask) task;
+                conflatedTasks.remove(conflatedTask.conflationKey);
+                return conflatedTask.task;
+            }
+            return task;
+        }
+    }
+
+    private static class ConflatedTask implements Runnable {
+
+        private final String conflationKey;
+
+        private Runnable task;
+
+        ConflatedTask(String conflationKey, Runnable task) {
+            this.conflationKey = conflationKey;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
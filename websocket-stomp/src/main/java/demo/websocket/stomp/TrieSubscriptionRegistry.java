@@ -0,0 +1,470 @@
+package demo.websocket.stomp;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.broker.AbstractSubscriptionRegistry;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+// subscriptions in a trie of destination segments, with the Ant-style patterns of the default registry:
+// '*' and '**' as whole segments, '*', '?' and '{name}' or '{name:regex}' within a segment;
+// writers are serialized by a lock, lookups never block: exact segments are in concurrent maps,
+// pattern segments and the subscriptions of a destination are read from copy-on-write snapshots;
+// the cache maps destinations to the subscriber sets they match and is only invalidated when
+// a destination is added to the trie, so subscribing to an existing destination keeps it warm;
+// selector headers are not supported
+public class TrieSubscriptionRegistry extends AbstractSubscriptionRegistry {
+
+    public static final int DEFAULT_CACHE_LIMIT = 1024;
+
+    private static final char SEPARATOR = '/';
+
+    private static final String SINGLE_WILDCARD = "*";
+    private static final String MULTI_WILDCARD = "**";
+
+    private static final Subscribers[] NO_SUBSCRIBERS = new Subscribers[0];
+    private static final Node[] NO_NODES = new Node[0];
+
+    private static final MultiValueMap<String, String> EMPTY_MAP =
+            CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<>());
+
+    private final int cacheLimit;
+
+    private final Object writeLock = new Object();
+
+    private final Node root = new Node(null, null);
+
+    // session id to its subscriptions by subscription id, changed under the write lock only
+    private final Map<String, Map<String, Node>> sessions = new ConcurrentHashMap<>();
+
+    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public TrieSubscriptionRegistry() {
+        this(DEFAULT_CACHE_LIMIT);
+    }
+
+    public TrieSubscriptionRegistry(int cacheLimit) {
+        this.cacheLimit = cacheLimit;
+    }
+
+    @Override
+    protected void addSubscriptionInternal(String sessionId, String subscriptionId, String destination,
+                                           Message<?> message) {
+        String[] segments = tokenize(destination);
+        synchronized (writeLock) {
+            Map<String, Node> subscriptions = sessions.computeIfAbsent(sessionId, id -> new HashMap<>());
+            if (subscriptions.containsKey(subscriptionId)) {
+                removeSubscription(sessionId, subscriptionId, subscriptions);
+            }
+
+            Node node = root;
+            int firstAdded = -1;
+            for (int i = 0; i < segments.length; i++) {
+                Node child = node.children.get(segments[i]);
+                if (child == null) {
+                    child = new Node(node, segments[i]);
+                    node.addChild(child);
+                    if (firstAdded < 0) {
+                        firstAdded = i;
+                    }
+                }
+                node = child;
+            }
+            if (firstAdded >= 0) {
+                invalidate(segments, firstAdded);
+            }
+            node.subscribers.add(sessionId, subscriptionId);
+            subscriptions.put(subscriptionId, node);
+        }
+    }
+
+    @Override
+    protected void removeSubscriptionInternal(String sessionId, String subscriptionId, Message<?> message) {
+        synchronized (writeLock) {
+            Map<String, Node> subscriptions = sessions.get(sessionId);
+            if (subscriptions != null) {
+                removeSubscription(sessionId, subscriptionId, subscriptions);
+                if (subscriptions.isEmpty()) {
+                    sessions.remove(sessionId);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void unregisterAllSubscriptions(String sessionId) {
+        synchronized (writeLock) {
+            Map<String, Node> subscriptions = sessions.remove(sessionId);
+            if (subscriptions != null) {
+                for (String subscriptionId : new ArrayList<>(subscriptions.keySet())) {
+                    removeSubscription(sessionId, subscriptionId, subscriptions);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
+        return lookup(destination).view();
+    }
+
+    public int getSubscriptionCount() {
+        int count = 0;
+        for (Map<String, Node> subscriptions : sessions.values()) {
+            count += subscriptions.size();
+        }
+        return count;
+    }
+
+    public int getCacheSize() {
+        return cache.size();
+    }
+
+    private void removeSubscription(String sessionId, String subscriptionId, Map<String, Node> subscriptions) {
+        Node node = subscriptions.remove(subscriptionId);
+        if (node != null && node.subscribers.remove(sessionId, subscriptionId)) {
+            // emptied leaves are pruned, cached lookups that still refer to them find no subscribers
+            while (node.parent != null && node.subscribers.isEmpty() && node.children.isEmpty()) {
+                node.parent.removeChild(node);
+                node = node.parent;
+            }
+        }
+    }
+
+    private CacheEntry lookup(String destination) {
+        CacheEntry entry = cache.get(destination);
+        if (entry == null) {
+            if (!isCanonical(destination)) {
+                // a destination with empty segments matches the same nodes as its canonical form
+                // but would not be invalidated under its own key, so it is never cached
+                return new CacheEntry(match(root, tokenize(destination)));
+            }
+            // the trie is read inside the mapping function, so not before an invalidation of the same key
+            entry = cache.computeIfAbsent(destination, key -> new CacheEntry(match(root, tokenize(key))));
+            if (cache.size() > cacheLimit) {
+                evict();
+            }
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry;
+    }
+
+    // called after the trie is changed, new exact nodes can only change the lookups of their own paths
+    private void invalidate(String[] segments, int firstAdded) {
+        for (String segment : segments) {
+            if (isPattern(segment)) {
+                cache.clear();
+                return;
+            }
+        }
+        StringBuilder path = new StringBuilder();
+        for (int i = 0; i < segments.length; i++) {
+            path.append(SEPARATOR).append(segments[i]);
+            if (i >= firstAdded) {
+                cache.remove(path.toString());
+            }
+        }
+    }
+
+    // second chance eviction down to three quarters of the limit, by one thread at a time
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int target = cacheLimit - cacheLimit / 4;
+            for (int pass = 0; pass < 2 && cache.size() > target; pass++) {
+                Iterator<CacheEntry> iterator = cache.values().iterator();
+                while (iterator.hasNext() && cache.size() > target) {
+                    CacheEntry entry = iterator.next();
+                    if (pass == 0 && entry.referenced) {
+                        entry.referenced = false;
+                    } else {
+                        iterator.remove();
+                    }
+                }
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static Subscribers[] match(Node root, String[] segments) {
+        List<Subscribers> matches = new ArrayList<>(2);
+        match(root, segments, 0, matches);
+        return matches.isEmpty() ? NO_SUBSCRIBERS : matches.toArray(NO_SUBSCRIBERS);
+    }
+
+    private static void match(Node node, String[] segments, int index, List<Subscribers> matches) {
+        Node multiWildcard = node.multiWildcard;
+        if (multiWildcard != null) {
+            // '**' matches any number of segments, including none
+            for (int i = index; i <= segments.length; i++) {
+                match(multiWildcard, segments, i, matches);
+            }
+        }
+        if (index == segments.length) {
+            // empty subscribers are matched too, the cached lookup must see them once they are subscribed to
+            if (!containsIdentical(matches, node.subscribers)) {
+                matches.add(node.subscribers);
+            }
+            return;
+        }
+        String segment = segments[index];
+        Node child = isPattern(segment) ? null : node.children.get(segment);
+        if (child != null) {
+            match(child, segments, index + 1, matches);
+        }
+        Node singleWildcard = node.singleWildcard;
+        if (singleWildcard != null) {
+            match(singleWildcard, segments, index + 1, matches);
+        }
+        for (Node patternChild : node.patternChildren) {
+            if (patternChild.segmentPattern.matcher(segment).matches()) {
+                match(patternChild, segments, index + 1, matches);
+            }
+        }
+    }
+
+    private static boolean containsIdentical(List<Subscribers> matches, Subscribers subscribers) {
+        for (Subscribers match : matches) {
+            if (match == subscribers) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] tokenize(String destination) {
+        List<String> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= destination.length(); i++) {
+            if (i == destination.length() || destination.charAt(i) == SEPARATOR) {
+                if (i > start) {
+                    segments.add(destination.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+        return segments.toArray(new String[0]);
+    }
+
+    private static boolean isCanonical(String destination) {
+        int length = destination.length();
+        if (length < 2 || destination.charAt(0) != SEPARATOR || destination.charAt(length - 1) == SEPARATOR) {
+            return false;
+        }
+        for (int i = 1; i < length; i++) {
+            if (destination.charAt(i) == SEPARATOR && destination.charAt(i - 1) == SEPARATOR) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPattern(String destination) {
+        return destination.indexOf('*') >= 0 || destination.indexOf('?') >= 0 || destination.indexOf('{') >= 0;
+    }
+
+    // null for an exact segment and for the '*' and '**' wildcards, which are matched without a regex
+    private static Pattern segmentPattern(String segment) {
+        if (!isPattern(segment) || SINGLE_WILDCARD.equals(segment) || MULTI_WILDCARD.equals(segment)) {
+            return null;
+        }
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (c == '*') {
+                regex.append(".*");
+            } else if (c == '?') {
+                regex.append('.');
+            } else if (c == '{' && segment.indexOf('}', i) > 0) {
+                int end = segment.indexOf('}', i);
+                int colon = segment.indexOf(':', i);
+                regex.append('(').append((colon > 0 && colon < end) ? segment.substring(colon + 1, end) : ".*").append(')');
+                i = end;
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString());
+    }
+
+    private static final class Node {
+
+        private final Node parent;
+        private final String segment;
+
+        private final Pattern segmentPattern;
+
+        private final Subscribers subscribers = new Subscribers();
+
+        private final Map<String, Node> children = new ConcurrentHashMap<>();
+
+        private volatile Node singleWildcard;
+        private volatile Node multiWildcard;
+        private volatile Node[] patternChildren = NO_NODES;
+
+        private Node(Node parent, String segment) {
+            this.parent = parent;
+            this.segment = segment;
+            this.segmentPattern = (segment != null) ? segmentPattern(segment) : null;
+        }
+
+        // a new child is complete before it is published to lookups
+        private void addChild(Node child) {
+            children.put(child.segment, child);
+            if (SINGLE_WILDCARD.equals(child.segment)) {
+                singleWildcard = child;
+            } else if (MULTI_WILDCARD.equals(child.segment)) {
+                multiWildcard = child;
+            } else if (child.segmentPattern != null) {
+                Node[] copy = Arrays.copyOf(patternChildren, patternChildren.length + 1);
+                copy[copy.length - 1] = child;
+                patternChildren = copy;
+            }
+        }
+
+        private void removeChild(Node child) {
+            children.remove(child.segment);
+            if (child == singleWildcard) {
+                singleWildcard = null;
+            } else if (child == multiWildcard) {
+                multiWildcard = null;
+            } else if (child.segmentPattern != null) {
+                List<Node> copy = new ArrayList<>(Arrays.asList(patternChildren));
+                copy.remove(child);
+                patternChildren = copy.toArray(NO_NODES);
+            }
+        }
+    }
+
+    // the subscriptions to one destination, changed under the write lock and read without it
+    private static final class Subscribers {
+
+        private final Map<String, Set<String>> sessions = new ConcurrentHashMap<>();
+
+        private volatile int version;
+
+        private volatile View view;
+
+        private void add(String sessionId, String subscriptionId) {
+            sessions.computeIfAbsent(sessionId, id -> ConcurrentHashMap.newKeySet()).add(subscriptionId);
+            version++;
+        }
+
+        // returns true if no subscriptions are left
+        private boolean remove(String sessionId, String subscriptionId) {
+            Set<String> subscriptionIds = sessions.get(sessionId);
+            if (subscriptionIds != null && subscriptionIds.remove(subscriptionId)) {
+                if (subscriptionIds.isEmpty()) {
+                    sessions.remove(sessionId);
+                }
+                version++;
+            }
+            return sessions.isEmpty();
+        }
+
+        private boolean isEmpty() {
+            return sessions.isEmpty();
+        }
+
+        // rebuilt once per change, a view built while a change was in progress is discarded on the next read
+        private MultiValueMap<String, String> view() {
+            View current = view;
+            int currentVersion = version;
+            if (current != null && current.version == currentVersion) {
+                return current.subscriptions;
+            }
+            MultiValueMap<String, String> subscriptions = new LinkedMultiValueMap<>(sessions.size());
+            sessions.forEach((sessionId, subscriptionIds) -> subscriptions.put(sessionId, new ArrayList<>(subscriptionIds)));
+            current = new View(currentVersion, CollectionUtils.unmodifiableMultiValueMap(subscriptions));
+            view = current;
+            return current.subscriptions;
+        }
+    }
+
+    private static final class View {
+
+        private final int version;
+
+        private final MultiValueMap<String, String> subscriptions;
+
+        private View(int version, MultiValueMap<String, String> subscriptions) {
+            this.version = version;
+            this.subscriptions = subscriptions;
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final Subscribers[] matches;
+
+        private volatile boolean referenced;
+
+        // the union of several matches, valid while their versions are unchanged
+        private volatile MergedView merged;
+
+        private CacheEntry(Subscribers[] matches) {
+            this.matches = matches;
+        }
+
+        private MultiValueMap<String, String> view() {
+            if (matches.length == 0) {
+                return EMPTY_MAP;
+            }
+            if (matches.length == 1) {
+                return matches[0].view();
+            }
+            MergedView current = merged;
+            if (current != null && isCurrent(current.versions)) {
+                return current.subscriptions;
+            }
+            int[] versions = new int[matches.length];
+            MultiValueMap<String, String> subscriptions = new LinkedMultiValueMap<>();
+            for (int i = 0; i < matches.length; i++) {
+                versions[i] = matches[i].version;
+                matches[i].view().forEach(subscriptions::addAll);
+            }
+            current = new MergedView(versions, CollectionUtils.unmodifiableMultiValueMap(subscriptions));
+            merged = current;
+            return current.subscriptions;
+        }
+
+        private boolean isCurrent(int[] versions) {
+            for (int i = 0; i < matches.length; i++) {
+                if (matches[i].version != versions[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class MergedView {
+
+        private final int[] versions;
+
+        private final MultiValueMap<String, String> subscriptions;
+
+        private MergedView(int[] versions, MultiValueMap<String, String> subscriptions) {
+            this.versions = versions;
+            this.subscriptions = subscriptions;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package demo.websocket.stomp;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+
+// the simple broker is created by the message broker configuration with the default registry,
+// which is replaced before the broker is started
+public class TrieSubscriptionRegistryPostProcessor implements BeanPostProcessor {
+
+    private final boolean enabled;
+
+    private final int cacheLimit;
+
+    public TrieSubscriptionRegistryPostProcessor(boolean enabled, int cacheLimit) {
+        this.enabled = enabled;
+        this.cacheLimit = cacheLimit;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (enabled && bean instanceof SimpleBrokerMessageHandler) {
+            ((SimpleBrokerMessageHandler) bean).setSubscriptionRegistry(new TrieSubscriptionRegistry(cacheLimit));
+        }
+        return bean;
+    }
+}
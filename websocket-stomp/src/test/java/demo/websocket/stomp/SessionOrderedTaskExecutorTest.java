@@ -0,0 +1,159 @@
+package demo.websocket.stomp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionOrderedTaskExecutorTest {
+
+    private SessionOrderedTaskExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void tasksOfASessionRunInOrder() throws InterruptedException {
+        executor = executor(new SessionOrderedTaskExecutor(false));
+
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int index = i;
+            executor.execute(new SessionTask("s1", "/topic/a", () -> {
+                order.add(index);
+                done.countDown();
+            }));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, order.get(i));
+        }
+    }
+
+    @Test
+    void queuedTasksOfAConflatedDestinationAreReplaced() throws InterruptedException {
+        executor = executor(new SessionOrderedTaskExecutor(false, Set.of("/topic/a"), 0));
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        executor.execute(new SessionTask("s1", "/topic/b", () -> {
+            running.countDown();
+            await(release);
+            done.countDown();
+        }));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        for (String payload : new String[]{"a1", "a2", "a3"}) {
+            executor.execute(new SessionTask("s1", "/topic/a", () -> {
+                sent.add(payload);
+                done.countDown();
+            }));
+        }
+        executor.execute(new SessionTask("s1", "/topic/b", () -> {
+            sent.add("b1");
+            done.countDown();
+        }));
+        release.countDown();
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of("a3", "b1"), sent);
+        assertEquals(2, executor.getConflatedTaskCount());
+    }
+
+    @Test
+    void rejectedNextTaskDoesNotHideTheTaskException() throws InterruptedException {
+        AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        executor = new SessionOrderedTaskExecutor(false);
+        executor.setCorePoolSize(1);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setThreadFactory(task -> {
+            Thread thread = new Thread(task);
+            thread.setUncaughtExceptionHandler((t, e) -> uncaught.set(e));
+            return thread;
+        });
+        executor.initialize();
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(new SessionTask("s1", "/topic/a", () -> {
+            running.countDown();
+            await(release);
+            throw new IllegalStateException("task failed");
+        }));
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        executor.execute(new SessionTask("s1", "/topic/a", () -> {
+        }));
+        // the queued task is dispatched after the shutdown and rejected
+        executor.shutdown();
+        release.countDown();
+
+        assertTrue(executor.getThreadPoolExecutor().awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals("task failed", uncaught.get().getMessage());
+        assertEquals(1, executor.getDroppedTaskCount());
+    }
+
+    private static SessionOrderedTaskExecutor executor(SessionOrderedTaskExecutor executor) {
+        executor.setCorePoolSize(4);
+        executor.initialize();
+        return executor;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class SessionTask implements MessageHandlingRunnable {
+
+        private final Message<byte[]> message;
+
+        private final Runnable action;
+
+        SessionTask(String sessionId, String destination, Runnable action) {
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setSessionId(sessionId);
+            accessor.setSubscriptionId("sub-0");
+            accessor.setDestination(destination);
+            this.message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+            this.action = action;
+        }
+
+        @Override
+        public Message<?> getMessage() {
+            return message;
+        }
+
+        @Override
+        public MessageHandler getMessageHandler() {
+            return null;
+        }
+
+        @Override
+        public void run() {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package demo.websocket.stomp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.DefaultSubscriptionRegistry;
+import org.springframework.messaging.simp.broker.SubscriptionRegistry;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MultiValueMap;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// every lookup is checked against the default registry with the same subscriptions
+class TrieSubscriptionRegistryTest {
+
+    private static final List<String> DESTINATIONS = Arrays.asList(
+            "/topic/a", "/topic/b", "/topic/a/b", "/topic/a/b/c", "/topic/ab", "/topic", "/queue/a", "/topic/a.b");
+
+    private final TrieSubscriptionRegistry trieRegistry = new TrieSubscriptionRegistry();
+
+    private final DefaultSubscriptionRegistry defaultRegistry = new DefaultSubscriptionRegistry();
+
+    @Test
+    void singleWildcardMatchesOneSegment() {
+        subscribe("s1", "1", "/topic/*");
+        subscribe("s2", "1", "/topic/*/b");
+        subscribe("s2", "2", "/topic/a");
+
+        assertSameSubscriptions();
+        assertEquals(Set.of("s1", "s2"), find("/topic/a").keySet());
+        assertEquals(Set.of("s2"), find("/topic/a/b").keySet());
+    }
+
+    @Test
+    void multiWildcardMatchesAnySegments() {
+        subscribe("s1", "1", "/topic/**");
+        subscribe("s2", "1", "/topic/**/c");
+        subscribe("s3", "1", "/**");
+
+        assertSameSubscriptions();
+        assertEquals(Set.of("s1", "s2", "s3"), find("/topic/a/b/c").keySet());
+        assertEquals(Set.of("s1", "s3"), find("/topic").keySet());
+    }
+
+    @Test
+    void patternSegmentsMatchWithinASegment() {
+        subscribe("s1", "1", "/topic/a*");
+        subscribe("s2", "1", "/topic/?");
+        subscribe("s3", "1", "/topic/{name:a\\.b}");
+
+        assertSameSubscriptions();
+    }
+
+    @Test
+    void unsubscribeRemovesOnlyThatSubscription() {
+        subscribe("s1", "1", "/topic/a");
+        subscribe("s1", "2", "/topic/*");
+        subscribe("s2", "1", "/topic/a");
+        assertSameSubscriptions();
+
+        unsubscribe("s1", "1");
+        assertSameSubscriptions();
+        assertEquals(Map.of("s1", Set.of("2"), "s2", Set.of("1")), find("/topic/a"));
+
+        unsubscribe("s1", "2");
+        unsubscribe("s2", "1");
+        assertSameSubscriptions();
+        assertTrue(find("/topic/a").isEmpty());
+        assertEquals(0, trieRegistry.getSubscriptionCount());
+    }
+
+    @Test
+    void sessionRemovalRemovesAllItsSubscriptions() {
+        subscribe("s1", "1", "/topic/a");
+        subscribe("s1", "2", "/topic/**");
+        subscribe("s2", "1", "/topic/a/b");
+        assertSameSubscriptions();
+
+        trieRegistry.unregisterAllSubscriptions("s1");
+        defaultRegistry.unregisterAllSubscriptions("s1");
+        assertSameSubscriptions();
+        assertEquals(Set.of("s2"), find("/topic/a/b").keySet());
+        assertEquals(1, trieRegistry.getSubscriptionCount());
+    }
+
+    @Test
+    void cachedLookupSeesLaterSubscriptions() {
+        subscribe("s1", "1", "/topic/a");
+        assertSameSubscriptions();
+
+        subscribe("s2", "1", "/topic/a");
+        subscribe("s3", "1", "/topic/*");
+        subscribe("s4", "1", "/topic/a/b");
+        assertSameSubscriptions();
+        assertEquals(Set.of("s1", "s2", "s3"), find("/topic/a").keySet());
+    }
+
+    private void subscribe(String sessionId, String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        trieRegistry.registerSubscription(message);
+        defaultRegistry.registerSubscription(message);
+    }
+
+    private void unsubscribe(String sessionId, String subscriptionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.UNSUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        trieRegistry.unregisterSubscription(message);
+        defaultRegistry.unregisterSubscription(message);
+    }
+
+    private void assertSameSubscriptions() {
+        for (String destination : DESTINATIONS) {
+            assertEquals(find(defaultRegistry, destination), find(trieRegistry, destination), destination);
+        }
+    }
+
+    private Map<String, Set<String>> find(String destination) {
+        return find(trieRegistry, destination);
+    }
+
+    private static Map<String, Set<String>> find(SubscriptionRegistry registry, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        MultiValueMap<String, String> subscriptions =
+                registry.findSubscriptions(MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders()));
+        Map<String, Set<String>> result = new TreeMap<>();
+        subscriptions.forEach((sessionId, subscriptionIds) -> result.put(sessionId, new HashSet<>(subscriptionIds)));
+        return result;
+    }
+}